@@ -22,10 +22,11 @@ package de.flapdoodle.embed.mongo.client;
 
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
 import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 import de.flapdoodle.embed.mongo.packageresolver.Feature;
-import de.flapdoodle.embed.mongo.transitions.RunningMongoProcess;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.mongo.transitions.RunningMongosProcess;
 import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.types.Try;
@@ -35,13 +36,18 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public abstract class ClientActions {
 	private static Logger logger = LoggerFactory.getLogger(ClientActions.class);
 
+	private static final String PRIMARY = "PRIMARY";
+	private static final String SECONDARY = "SECONDARY";
+
 	private ClientActions() {
 		// no instance
 	}
@@ -53,52 +59,89 @@ public abstract class ClientActions {
 
 		UsernamePassword admin = setup.admin();
 
+		typedBuilder.onStateReached(expectedState, executeClientActionStages(executeAction, authenticationStages(databaseName, setup)));
+
+		// a killed process must not be shut down gracefully
+		typedBuilder.onStateTearDown(StateID.of(RunningMongodProcess.class), runningMongodProcess -> {
+			if (runningMongodProcess.teardownPolicy() != TeardownPolicy.KILL) {
+				executeClientActions(executeAction, runningMongodProcess, Collections.singletonList(shutdown(admin.name(), admin.password())));
+				runningMongodProcess.shutDownCommandAlreadyExecuted();
+			}
+		});
+
+		return typedBuilder.build();
+	}
+
+	/**
+	 * same as {@link #setupAuthentication(ExecuteMongoClientAction, String, AuthenticationSetup)} for an already running
+	 * process, but the caller is not blocked
+	 */
+	public static CompletionStage<Void> setupAuthenticationAsync(ReactiveClientAdapter executeAction, RunningMongodProcess runningMongodProcess,
+		String databaseName, AuthenticationSetup setup) {
+		UsernamePassword admin = setup.admin();
+
+		// registered before any client of this process, so it is called before the clients are closed
+		runningMongodProcess.whenStopping(() -> {
+			if (runningMongodProcess.teardownPolicy() != TeardownPolicy.KILL) {
+				executeAction.executeAll(runningMongodProcess, Collections.singletonList(shutdown(admin.name(), admin.password())))
+					.toCompletableFuture()
+					.join();
+				runningMongodProcess.shutDownCommandAlreadyExecuted();
+			}
+			executeAction.closeClients(runningMongodProcess);
+		});
+
+		return executeAction.executeStages(runningMongodProcess, authenticationStages(databaseName, setup));
+	}
+
+	private static List<List<MongoClientAction>> authenticationStages(String databaseName, AuthenticationSetup setup) {
+		UsernamePassword admin = setup.admin();
+
 		// client action without credentials
 		MongoClientAction createAdminUser = MongoClientAction.runCommand("admin",
 			MongoClientAction.createUser(admin.name(), admin.passwordAsString(), Arrays.asList("root")));
 
-		List<MongoClientAction> setupRoles;
+		// actions of one stage are independent and executed concurrently, stages are executed one after another
+		List<List<MongoClientAction>> stages = new ArrayList<>();
+		stages.add(Collections.singletonList(createAdminUser));
 
 		if (setup.entries().isEmpty()) {
-			setupRoles = Arrays.asList(
-				MongoClientAction.createUser(databaseName, admin.name(), admin.password(), "readWrite")
-					.withCredentials(MongoClientAction.credentials("admin", admin.name(), admin.password())),
+			stages.addAll(Arrays.asList(
+				Collections.singletonList(MongoClientAction.createUser(databaseName, admin.name(), admin.password(), "readWrite")
+					.withCredentials(MongoClientAction.credentials("admin", admin.name(), admin.password()))),
 				// test list collections to fail fast if something went wrong
-				MongoClientAction.runCommand(databaseName, MongoClientAction.listCollections())
-					.withCredentials(MongoClientAction.credentials(databaseName, admin.name(), admin.password()))
-			);
+				Collections.singletonList(MongoClientAction.runCommand(databaseName, MongoClientAction.listCollections())
+					.withCredentials(MongoClientAction.credentials(databaseName, admin.name(), admin.password())))
+			));
 		} else {
 			MongoClientAction.Credentials adminCredentials = MongoClientAction.credentials("admin", admin.name(), admin.password());
 
-			setupRoles = setup.entries()
-				.stream().map(entry -> {
-					if (entry instanceof AuthenticationSetup.Role) {
-						AuthenticationSetup.Role role = (AuthenticationSetup.Role) entry;
-						return MongoClientAction.runCommand(role.database(),
-								MongoClientAction.createRole(role.name(),
-									MongoClientAction.privilege(role.database(), role.collection(), role.actions())))
-							.withCredentials(adminCredentials);
-					}
-					if (entry instanceof AuthenticationSetup.User) {
-						AuthenticationSetup.User user = (AuthenticationSetup.User) entry;
-						return MongoClientAction.runCommand(user.database(),
-								MongoClientAction.createUser(user.user().name(), user.user().passwordAsString(), user.roles()))
-							.withCredentials(adminCredentials);
-					}
-					throw new IllegalArgumentException("not supported: " + entry);
-				})
-				.collect(Collectors.toList());
-		}
+			List<MongoClientAction> createRoles = new ArrayList<>();
+			List<MongoClientAction> createUsers = new ArrayList<>();
 
-		typedBuilder.onStateReached(expectedState,
-			executeClientActions(executeAction, createAdminUser)
-				.andThen(executeClientActions(executeAction, setupRoles)));
+			setup.entries().forEach(entry -> {
+				if (entry instanceof AuthenticationSetup.Role) {
+					AuthenticationSetup.Role role = (AuthenticationSetup.Role) entry;
+					createRoles.add(MongoClientAction.runCommand(role.database(),
+							MongoClientAction.createRole(role.name(),
+								MongoClientAction.privilege(role.database(), role.collection(), role.actions())))
+						.withCredentials(adminCredentials));
+				} else if (entry instanceof AuthenticationSetup.User) {
+					AuthenticationSetup.User user = (AuthenticationSetup.User) entry;
+					createUsers.add(MongoClientAction.runCommand(user.database(),
+							MongoClientAction.createUser(user.user().name(), user.user().passwordAsString(), user.roles()))
+						.withCredentials(adminCredentials));
+				} else {
+					throw new IllegalArgumentException("not supported: " + entry);
+				}
+			});
 
-		typedBuilder.onStateTearDown(StateID.of(RunningMongodProcess.class),
-			executeClientActions(executeAction, shutdown(admin.name(), admin.password()))
-				.andThen(RunningMongoProcess::shutDownCommandAlreadyExecuted));
+			// users may reference roles
+			stages.add(createRoles);
+			stages.add(createUsers);
+		}
 
-		return typedBuilder.build();
+		return stages;
 	}
 
 	public static Listener initReplicaSet(
@@ -129,7 +172,7 @@ public abstract class ClientActions {
 								new Document("_id", replication.getReplSetName())
 									.append("members", Collections.singletonList(
 										new Document("_id", 0)
-											.append("host", serverAddress.getHost() + ":" + serverAddress.getPort())
+											.append("host", tcpHostAndPort(serverAddress))
 									))))
 						.withCredentials(credentials)
 				);
@@ -161,12 +204,245 @@ public abstract class ClientActions {
 		return builder.build();
 	}
 
-	private static Consumer<RunningMongodProcess> executeClientActions(ExecuteMongoClientAction<?> executeAction, MongoClientAction... actions) {
-		return runningMongodProcess -> executeClientActions(executeAction, runningMongodProcess, Arrays.asList(actions));
+	/**
+	 * initiates a replica set with all members and waits until there is one primary and all other members are secondaries,
+	 * each member is asked with an awaitable isMaster, which returns as soon as the member state changes
+	 *
+	 * @return time from initiate until all members reached their state
+	 */
+	public static Duration initiateReplicaSet(
+		ExecuteMongoClientAction<?> executeAction,
+		String replicaSetName,
+		boolean configServer,
+		List<? extends RunningMongodProcess> members,
+		Duration timeout
+	) {
+		if (members.isEmpty()) {
+			throw new IllegalArgumentException("replica set " + replicaSetName + " without members");
+		}
+
+		List<Document> memberConfigs = new ArrayList<>();
+		for (int i = 0; i < members.size(); i++) {
+			ServerAddress serverAddress = members.get(i).getServerAddress();
+			memberConfigs.add(new Document("_id", i).append("host", tcpHostAndPort(serverAddress)));
+		}
+		Document config = new Document("_id", replicaSetName).append("members", memberConfigs);
+		if (configServer) {
+			config.append("configsvr", true);
+		}
+
+		RunningMongodProcess first = members.get(0);
+		long started = System.currentTimeMillis();
+		executeAction.execute(first, MongoClientAction.runCommand("admin", new Document("replSetInitiate", config)));
+
+		List<String> memberStates = new ArrayList<>();
+		for (RunningMongodProcess member : members) {
+			memberStates.add(awaitPrimaryOrSecondary(executeAction, replicaSetName, member, started, timeout));
+		}
+		if (memberStates.stream().filter(PRIMARY::equals).count() != 1) {
+			throw new IllegalArgumentException("replica set " + replicaSetName + " without exactly one primary, member states: " + memberStates);
+		}
+
+		Duration initTime = Duration.ofMillis(System.currentTimeMillis() - started);
+		logger.info("replica set {} with {} members initialized after {}", replicaSetName, members.size(), initTime);
+		return initTime;
+	}
+
+	/**
+	 * adds all shards with one client and waits until the router lists all of them
+	 */
+	public static void addShards(
+		ExecuteMongoClientAction<?> executeAction,
+		RunningMongosProcess router,
+		List<String> shardHosts,
+		Duration timeout
+	) {
+		long started = System.currentTimeMillis();
+
+		executeAction.withSession(router, Optional.empty(), session -> {
+			shardHosts.forEach(shardHost -> session.execute(MongoClientAction.runCommand("admin", new Document("addShard", shardHost))));
+
+			Set<String> listedShards = new LinkedHashSet<>();
+			MongoClientAction listShards = MongoClientAction.runCommand("admin", new Document("listShards", 1))
+				.withOnResult(result -> result.getList("shards", Document.class)
+					.forEach(shard -> listedShards.add(shard.getString("host"))));
+
+			long interval = 10;
+			while (true) {
+				listedShards.clear();
+				session.execute(listShards);
+				if (listedShards.size() >= shardHosts.size()) {
+					return;
+				}
+				long diff = System.currentTimeMillis() - started;
+				if (diff > timeout.toMillis()) {
+					throw new IllegalArgumentException("shards " + shardHosts + " not listed after " + Duration.ofMillis(diff) + ", found: " + listedShards);
+				}
+				long sleep = interval;
+				Try.run(() -> Thread.sleep(sleep));
+				interval = Math.min(interval * 2, 500);
+			}
+		});
+
+		logger.info("{} shards added after {}", shardHosts.size(), Duration.ofMillis(System.currentTimeMillis() - started));
+	}
+
+	// replica set members connect to each other, a unix socket is not reachable from other hosts
+	private static String tcpHostAndPort(ServerAddress serverAddress) {
+		if (serverAddress.getUnixSocket().isPresent()) {
+			throw new IllegalArgumentException("replica set member needs a tcp address, but listens only on " + serverAddress.getUnixSocket().get());
+		}
+		return serverAddress.getHost() + ":" + serverAddress.getPort();
+	}
+
+	/**
+	 * waits until the member is primary or a secondary which knows the primary, with an awaitable isMaster
+	 * (topologyVersion and maxAwaitTimeMS) the server answers as soon as the member state changes,
+	 * servers before 4.4 return no topologyVersion and are polled instead
+	 */
+	private static String awaitPrimaryOrSecondary(
+		ExecuteMongoClientAction<?> executeAction,
+		String replicaSetName,
+		RunningMongodProcess member,
+		long started,
+		Duration timeout
+	) {
+		AtomicReference<String> state = new AtomicReference<>();
+
+		executeAction.withSession(member, Optional.empty(), session -> {
+			AtomicReference<Document> response = new AtomicReference<>();
+			Document isMaster = new Document("isMaster", 1);
+			long interval = 10;
+			while (true) {
+				response.set(null);
+				session.execute(MongoClientAction.runCommand("admin", isMaster)
+					.withOnResult(response::set)
+					// not initialized yet
+					.withOnError(ex -> logger.trace("isMaster failed", ex)));
+
+				Document result = response.get();
+				Optional<String> reached = Optional.ofNullable(result).flatMap(ClientActions::primaryOrSecondary);
+				if (reached.isPresent()) {
+					state.set(reached.get());
+					return;
+				}
+
+				long remaining = timeout.toMillis() - (System.currentTimeMillis() - started);
+				if (remaining <= 0) {
+					throw new IllegalArgumentException("replica set " + replicaSetName + " member " + member.getServerAddress()
+						+ " not ready after " + Duration.ofMillis(System.currentTimeMillis() - started) + ", last isMaster: " + result);
+				}
+
+				Object topologyVersion = result != null ? result.get("topologyVersion") : null;
+				if (topologyVersion != null) {
+					isMaster = new Document("isMaster", 1)
+						.append("topologyVersion", topologyVersion)
+						.append("maxAwaitTimeMS", remaining);
+				} else {
+					isMaster = new Document("isMaster", 1);
+					long sleep = Math.min(interval, remaining);
+					Try.run(() -> Thread.sleep(sleep));
+					interval = Math.min(interval * 2, 500);
+				}
+			}
+		});
+
+		return state.get();
+	}
+
+	private static Optional<String> primaryOrSecondary(Document isMaster) {
+		if (isMaster.getBoolean("ismaster", false)) {
+			return Optional.of(PRIMARY);
+		}
+		if (isMaster.getBoolean("secondary", false) && isMaster.containsKey("primary")) {
+			return Optional.of(SECONDARY);
+		}
+		return Optional.empty();
+	}
+
+	public static void resetDatabases(ExecuteMongoClientAction<?> executeAction, RunningMongodProcess runningMongodProcess, ResetMode mode) {
+		resetDatabases(executeAction, runningMongodProcess, mode, Optional.empty());
+	}
+
+	public static void resetDatabases(
+		ExecuteMongoClientAction<?> executeAction,
+		RunningMongodProcess runningMongodProcess,
+		ResetMode mode,
+		Optional<UsernamePassword> adminUser
+	) {
+		Optional<MongoClientAction.Credentials> credentials = adminUser
+			.map(it -> MongoClientAction.credentials("admin", it.name(), it.password()));
+
+		List<String> databaseNames = new ArrayList<>();
+		executeAction.withSession(runningMongodProcess, credentials, session ->
+			session.execute(MongoClientAction.runCommand("admin", MongoClientAction.listDatabases())
+				.withOnResult(result -> result.getList("databases", Document.class)
+					.forEach(database -> databaseNames.add(database.getString("name"))))));
+
+		// databases are independent, so they are reset concurrently, all with the same client
+		List<Consumer<ExecuteMongoClientAction.Session>> resets = databaseNames.stream()
+			.filter(name -> !MongoClientAction.isSystemDatabase(name))
+			.map(name -> (Consumer<ExecuteMongoClientAction.Session>) session -> {
+				switch (mode) {
+					case DROP_DATABASES:
+						session.execute(MongoClientAction.runCommand(name, MongoClientAction.dropDatabase()));
+						break;
+					case CLEAR_COLLECTIONS:
+						clearCollections(session, name);
+						break;
+				}
+			})
+			.collect(Collectors.toList());
+
+		executeAction.withSessionConcurrently(runningMongodProcess, credentials, resets);
+	}
+
+	private static void clearCollections(ExecuteMongoClientAction.Session session, String databaseName) {
+		List<Document> collections = all(session, MongoClientAction.listAllCollections(databaseName));
+
+		collections.stream()
+			.filter(collection -> "collection".equals(collection.getString("type")))
+			.filter(collection -> !collection.getString("name").startsWith("system."))
+			.forEach(collection -> {
+				String name = collection.getString("name");
+				Document options = collection.get("options", new Document());
+				if (options.getBoolean("capped", false)) {
+					// documents of capped collections can not be deleted
+					recreate(session, databaseName, name, options);
+				} else {
+					session.execute(MongoClientAction.runCommand(databaseName, MongoClientAction.deleteAll(name)));
+				}
+			});
+	}
+
+	private static void recreate(ExecuteMongoClientAction.Session session, String databaseName, String collection, Document options) {
+		List<Document> indexes = new ArrayList<>();
+		all(session, MongoClientAction.listAllIndexes(databaseName, collection)).stream()
+			.filter(index -> !"_id_".equals(index.getString("name")))
+			.forEach(index -> {
+				Document copy = new Document(index);
+				copy.remove("v");
+				copy.remove("ns");
+				indexes.add(copy);
+			});
+
+		session.execute(MongoClientAction.runCommand(databaseName, MongoClientAction.drop(collection)));
+		session.execute(MongoClientAction.runCommand(databaseName, MongoClientAction.createCollection(collection, options)));
+		if (!indexes.isEmpty()) {
+			session.execute(MongoClientAction.runCommand(databaseName, MongoClientAction.createIndexes(collection, indexes)));
+		}
+	}
+
+	private static List<Document> all(ExecuteMongoClientAction.Session session, ImmutableMongoClientAction listAction) {
+		List<Document> documents = new ArrayList<>();
+		session.execute(listAction
+			.withOnResult(result -> documents.addAll(result.getList(MongoClientAction.DOCUMENTS, Document.class))));
+		return documents;
 	}
 
-	private static Consumer<RunningMongodProcess> executeClientActions(ExecuteMongoClientAction<?> executeAction, List<? extends MongoClientAction> actions) {
-		return runningMongodProcess -> executeClientActions(executeAction, runningMongodProcess, actions);
+	private static Consumer<RunningMongodProcess> executeClientActionStages(ExecuteMongoClientAction<?> executeAction,
+		List<? extends List<? extends MongoClientAction>> stages) {
+		return runningMongodProcess -> stages.forEach(stage -> executeAction.executeConcurrently(runningMongodProcess, stage));
 	}
 
 	private static void executeClientActions(ExecuteMongoClientAction<?> executeAction, RunningMongodProcess runningMongodProcess,
@@ -22,24 +22,132 @@ package de.flapdoodle.embed.mongo.client;
 
 import com.mongodb.MongoCredential;
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.transitions.RunningMongoProcess;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
 import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public abstract class ExecuteMongoClientAction<C extends Closeable> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteMongoClientAction.class);
+
+	// actions of one stage are few and short, threads are not kept if there is nothing to do
+	private static final int MAX_CONCURRENT_ACTIONS = 4;
+
+	private final ConcurrentMap<RunningMongoProcess, ConcurrentMap<Optional<MongoClientAction.Credentials>, C>> clients = new ConcurrentHashMap<>();
+	private final ExecutorService concurrentActions = concurrentActionsExecutor();
+
 	public void execute(RunningMongodProcess runningMongodProcess, MongoClientAction action) {
-		try (C client = action.credentials()
-			.map(c -> client(runningMongodProcess.getServerAddress(),
-				MongoCredential.createCredential(c.username(), c.database(), c.password().toCharArray())))
-			.orElseGet(() -> client(runningMongodProcess.getServerAddress()))) {
+		withSession(runningMongodProcess, action.credentials(), session -> session.execute(action));
+	}
 
-			action.onResult()
-				.accept(resultOfAction(client, action.action()));
+	/**
+	 * all actions executed with the session share one client, a session can be used concurrently,
+	 * clients are cached per process and credentials and closed when the process is stopped
+	 */
+	void withSession(RunningMongoProcess runningProcess, Optional<MongoClientAction.Credentials> credentials, Consumer<Session> usage) {
+		usage.accept(action -> execute(() -> clientFor(runningProcess, credentials), action));
+	}
+
+	C clientFor(RunningMongoProcess runningProcess, Optional<MongoClientAction.Credentials> credentials) {
+		ConcurrentMap<Optional<MongoClientAction.Credentials>, C> clientsOfProcess = clients.get(runningProcess);
+		if (clientsOfProcess == null) {
+			ConcurrentMap<Optional<MongoClientAction.Credentials>, C> created = new ConcurrentHashMap<>();
+			clientsOfProcess = clients.putIfAbsent(runningProcess, created);
+			if (clientsOfProcess == null) {
+				clientsOfProcess = created;
+				runningProcess.whenStopping(() -> closeClients(runningProcess));
+			}
+		}
+		return clientsOfProcess.computeIfAbsent(credentials, c -> c
+			.map(it -> client(runningProcess.getServerAddress(),
+				MongoCredential.createCredential(it.username(), it.database(), it.password().toCharArray())))
+			.orElseGet(() -> client(runningProcess.getServerAddress())));
+	}
+
+	/**
+	 * closes all cached clients of this process, is called if the process is stopped
+	 */
+	public void closeClients(RunningMongoProcess runningProcess) {
+		ConcurrentMap<Optional<MongoClientAction.Credentials>, C> clientsOfProcess = clients.remove(runningProcess);
+		if (clientsOfProcess != null) {
+			clientsOfProcess.values().forEach(client -> {
+				try {
+					client.close();
+				}
+				catch (IOException | RuntimeException ex) {
+					LOGGER.warn("could not close client", ex);
+				}
+			});
+		}
+	}
+
+	/**
+	 * executes independent actions concurrently, each failure is passed to the onError of its action,
+	 * if this fails too, all failures are collected and thrown after all actions are done
+	 */
+	void executeConcurrently(RunningMongoProcess runningProcess, Collection<? extends MongoClientAction> actions) {
+		runConcurrently(actions.stream()
+			.map(action -> (Runnable) () -> withSession(runningProcess, action.credentials(), session -> session.execute(action)))
+			.collect(Collectors.toList()));
+	}
+
+	/**
+	 * same as {@link #withSession(RunningMongoProcess, Optional, Consumer)}, but the usages are executed concurrently
+	 * and share one client, failures are collected like in {@link #executeConcurrently(RunningMongoProcess, Collection)}
+	 */
+	void withSessionConcurrently(RunningMongoProcess runningProcess, Optional<MongoClientAction.Credentials> credentials,
+		Collection<? extends Consumer<Session>> usages) {
+		runConcurrently(usages.stream()
+			.map(usage -> (Runnable) () -> withSession(runningProcess, credentials, usage))
+			.collect(Collectors.toList()));
+	}
+
+	private void runConcurrently(List<Runnable> tasks) {
+		List<CompletableFuture<Void>> results = tasks.stream()
+			.map(task -> CompletableFuture.runAsync(task, concurrentActions))
+			.collect(Collectors.toList());
+
+		List<RuntimeException> failures = new ArrayList<>();
+		for (CompletableFuture<Void> result : results) {
+			try {
+				result.join();
+			}
+			catch (CompletionException cx) {
+				failures.add(cx.getCause() instanceof RuntimeException ? (RuntimeException) cx.getCause() : cx);
+			}
 		}
-		catch (IOException e) {
-			throw new RuntimeException(e);
+		if (!failures.isEmpty()) {
+			RuntimeException first = failures.get(0);
+			failures.subList(1, failures.size()).forEach(first::addSuppressed);
+			throw first;
+		}
+	}
+
+	// a client which can not be created is passed to onError like any other failure of the action
+	private void execute(Supplier<C> client, MongoClientAction action) {
+		try {
+			action.onResult()
+				.accept(resultOfAction(client.get(), action.action()));
 		}
 		catch (RuntimeException rx) {
 			action.onError().accept(rx);
@@ -51,4 +159,20 @@ public abstract class ExecuteMongoClientAction<C extends Closeable> {
 	protected abstract C client(ServerAddress serverAddress, MongoCredential credential);
 
 	protected abstract Document resultOfAction(C client, MongoClientAction.Action action);
+
+	private static ExecutorService concurrentActionsExecutor() {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_ACTIONS, MAX_CONCURRENT_ACTIONS, 10, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "mongo-client-action-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	interface Session {
+		void execute(MongoClientAction action);
+	}
 }
@@ -65,6 +65,28 @@ abstract class MongoClientAction {
 		public abstract Document command();
 	}
 
+	/**
+	 * result contains all collections of the database in {@link #DOCUMENTS}, read with the driver cursor api
+	 */
+	@Value.Immutable
+	static abstract class ListCollections extends Action {
+	}
+
+	/**
+	 * result contains all indexes of the collection in {@link #DOCUMENTS}, read with the driver cursor api
+	 */
+	@Value.Immutable
+	static abstract class ListIndexes extends Action {
+		@Value.Parameter
+		public abstract String collection();
+	}
+
+	static final String DOCUMENTS = "documents";
+
+	static Document documents(List<Document> documents) {
+		return new Document(DOCUMENTS, documents).append("ok", 1.0);
+	}
+
 	static ImmutableMongoClientAction of(MongoClientAction.Action action) {
 		return ImmutableMongoClientAction.builder()
 			.action(action)
@@ -83,6 +105,14 @@ abstract class MongoClientAction {
 		return of(ImmutableRunCommand.of(database, command));
 	}
 
+	static ImmutableMongoClientAction listAllCollections(String database) {
+		return of(ImmutableListCollections.of(database));
+	}
+
+	static ImmutableMongoClientAction listAllIndexes(String database, String collection) {
+		return of(ImmutableListIndexes.of(database, collection));
+	}
+
 	static ImmutableMongoClientAction createUser(String database, String username, char[] password, String ... roles) {
 		return runCommand(database, createUser(username, new String(password), roles));
 	}
@@ -143,4 +173,39 @@ abstract class MongoClientAction {
 	static Document listCollections() {
 		return new Document("listCollections", 1);
 	}
+
+	static Document listCollections(Document filter) {
+		return listCollections().append("filter", filter);
+	}
+
+	static Document deleteAll(String collection) {
+		return new Document("delete", collection)
+			.append("deletes", Collections.singletonList(new Document("q", new Document()).append("limit", 0)));
+	}
+
+	static Document createCollection(String collection, Document options) {
+		Document command = new Document("create", collection);
+		command.putAll(options);
+		return command;
+	}
+
+	static Document createIndexes(String collection, List<Document> indexes) {
+		return new Document("createIndexes", collection).append("indexes", indexes);
+	}
+
+	static Document drop(String collection) {
+		return new Document("drop", collection);
+	}
+
+	static Document listDatabases() {
+		return new Document("listDatabases", 1).append("nameOnly", true);
+	}
+
+	static Document dropDatabase() {
+		return new Document("dropDatabase", 1);
+	}
+
+	static boolean isSystemDatabase(String name) {
+		return "admin".equals(name) || "config".equals(name) || "local".equals(name);
+	}
 }
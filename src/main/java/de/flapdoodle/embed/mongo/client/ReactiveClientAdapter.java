@@ -28,27 +28,136 @@ import com.mongodb.reactivestreams.client.MongoClients;
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
 import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.transitions.RunningMongoProcess;
 import de.flapdoodle.reverse.Listener;
 import org.bson.Document;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 public class ReactiveClientAdapter extends ExecuteMongoClientAction<MongoClient> {
 
 	@Override
 	protected Document resultOfAction(MongoClient client, MongoClientAction.Action action) {
+		return get(resultOfActionAsync(client, action));
+	}
+
+	private static CompletableFuture<Document> resultOfActionAsync(MongoClient client, MongoClientAction.Action action) {
 		if (action instanceof MongoClientAction.RunCommand) {
-			return get(client.getDatabase(action.database()).runCommand(((MongoClientAction.RunCommand) action).command()));
+			return first(client.getDatabase(action.database()).runCommand(((MongoClientAction.RunCommand) action).command()));
+		}
+		if (action instanceof MongoClientAction.ListCollections) {
+			return all(client.getDatabase(action.database()).listCollections())
+				.thenApply(MongoClientAction::documents);
+		}
+		if (action instanceof MongoClientAction.ListIndexes) {
+			return all(client.getDatabase(action.database())
+				.getCollection(((MongoClientAction.ListIndexes) action).collection())
+				.listIndexes())
+				.thenApply(MongoClientAction::documents);
 		}
 		throw new IllegalArgumentException("Action not supported: "+action);
 	}
 
+	/**
+	 * executes the action without blocking, onResult and onError are called from the driver threads,
+	 * the returned future fails if onError does
+	 */
+	CompletableFuture<Void> executeAsync(RunningMongoProcess runningProcess, MongoClientAction action) {
+		CompletableFuture<Document> result;
+		try {
+			result = resultOfActionAsync(clientFor(runningProcess, action.credentials()), action.action());
+		}
+		catch (RuntimeException rx) {
+			result = new CompletableFuture<>();
+			result.completeExceptionally(rx);
+		}
+		return result.handle((document, failure) -> {
+			try {
+				if (failure != null) {
+					throw asRuntimeException(failure);
+				}
+				action.onResult().accept(document);
+			}
+			catch (RuntimeException rx) {
+				action.onError().accept(rx);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * executes the actions one after another without blocking
+	 */
+	CompletionStage<Void> executeAll(RunningMongoProcess runningProcess, List<? extends MongoClientAction> actions) {
+		CompletionStage<Void> chain = CompletableFuture.completedFuture(null);
+		for (MongoClientAction action : actions) {
+			chain = chain.thenCompose(ignore -> executeAsync(runningProcess, action));
+		}
+		return chain;
+	}
+
+	/**
+	 * executes the stages one after another without blocking, all actions of one stage are started at once
+	 */
+	CompletionStage<Void> executeStages(RunningMongoProcess runningProcess, List<? extends List<? extends MongoClientAction>> stages) {
+		CompletionStage<Void> chain = CompletableFuture.completedFuture(null);
+		for (List<? extends MongoClientAction> stage : stages) {
+			chain = chain.thenCompose(ignore -> executeStage(runningProcess, stage));
+		}
+		return chain;
+	}
+
+	@Override
+	void executeConcurrently(RunningMongoProcess runningProcess, Collection<? extends MongoClientAction> actions) {
+		// failures of the actions are thrown as they are, like in the blocking variant
+		try {
+			executeStage(runningProcess, actions).join();
+		}
+		catch (CompletionException cx) {
+			throw asRuntimeException(cx);
+		}
+	}
+
+	private CompletableFuture<Void> executeStage(RunningMongoProcess runningProcess, Collection<? extends MongoClientAction> actions) {
+		List<CompletableFuture<Void>> results = actions.stream()
+			.map(action -> executeAsync(runningProcess, action))
+			.collect(Collectors.toList());
+
+		return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+			.handle((ignore, ignoredFailure) -> {
+				// collect all failures, not only the first one
+				RuntimeException first = null;
+				for (CompletableFuture<Void> it : results) {
+					try {
+						it.join();
+					}
+					catch (CompletionException cx) {
+						RuntimeException failure = asRuntimeException(cx);
+						if (first == null) {
+							first = failure;
+						} else if (first != failure) {
+							first.addSuppressed(failure);
+						}
+					}
+				}
+				if (first != null) {
+					throw first;
+				}
+				return null;
+			});
+	}
+
 	@Override
 	protected MongoClient client(ServerAddress serverAddress) {
 		return MongoClients.create("mongodb://"+serverAddress);
@@ -62,7 +171,23 @@ public class ReactiveClientAdapter extends ExecuteMongoClientAction<MongoClient>
 			.build());
 	}
 
-	private static <T> T get(Publisher<T> publisher) {
+	private static <T> T get(CompletableFuture<T> result) {
+		try {
+			return result.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * completes with the first element, or with null if the publisher is empty
+	 */
+	private static <T> CompletableFuture<T> first(Publisher<T> publisher) {
 		CompletableFuture<T> result = new CompletableFuture<>();
 
 		publisher.subscribe(new Subscriber<T>() {
@@ -76,18 +201,44 @@ public class ReactiveClientAdapter extends ExecuteMongoClientAction<MongoClient>
 				result.completeExceptionally(t);
 			}
 			@Override public void onComplete() {
+				result.complete(null);
 			}
 		});
 
-		try {
-			return result.get();
-		}
-		catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			return null;
-		}
-		catch (ExecutionException e) {
-			throw new RuntimeException(e);
-		}
+		return result;
+	}
+
+	/**
+	 * completes with all elements
+	 */
+	private static <T> CompletableFuture<List<T>> all(Publisher<T> publisher) {
+		CompletableFuture<List<T>> result = new CompletableFuture<>();
+		List<T> elements = new ArrayList<>();
+
+		publisher.subscribe(new Subscriber<T>() {
+			@Override public void onSubscribe(Subscription s) {
+				s.request(Long.MAX_VALUE);
+			}
+			@Override public void onNext(T t) {
+				elements.add(t);
+			}
+			@Override public void onError(Throwable t) {
+				result.completeExceptionally(t);
+			}
+			@Override public void onComplete() {
+				result.complete(elements);
+			}
+		});
+
+		return result;
+	}
+
+	private static RuntimeException asRuntimeException(Throwable failure) {
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+			? failure.getCause()
+			: failure;
+		return cause instanceof RuntimeException
+			? (RuntimeException) cause
+			: new RuntimeException(cause);
 	}
 }
@@ -31,6 +31,7 @@ import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 import de.flapdoodle.reverse.Listener;
 import org.bson.Document;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,6 +54,17 @@ public class SyncClientAdapter extends ExecuteMongoClientAction<MongoClient> {
 		if (action instanceof MongoClientAction.RunCommand) {
 			return client.getDatabase(action.database()).runCommand(((MongoClientAction.RunCommand) action).command());
 		}
+		if (action instanceof MongoClientAction.ListCollections) {
+			return MongoClientAction.documents(client.getDatabase(action.database())
+				.listCollections()
+				.into(new ArrayList<>()));
+		}
+		if (action instanceof MongoClientAction.ListIndexes) {
+			return MongoClientAction.documents(client.getDatabase(action.database())
+				.getCollection(((MongoClientAction.ListIndexes) action).collection())
+				.listIndexes()
+				.into(new ArrayList<>()));
+		}
 		throw new IllegalArgumentException("Action not supported: " + action);
 	}
 }
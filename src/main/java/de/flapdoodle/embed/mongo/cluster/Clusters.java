@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.cluster;
+
+import de.flapdoodle.embed.mongo.transitions.AsyncStart;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+abstract class Clusters {
+
+	private Clusters() {
+		// no instance
+	}
+
+	static ThreadFactory daemonThreads(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	static void closeAll(Collection<? extends TransitionWalker.ReachedState<?>> reachedStates) {
+		if (reachedStates.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(reachedStates.size(), daemonThreads("cluster-stop"));
+		try {
+			AsyncStart.closeAllAsync(reachedStates, executor).join();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
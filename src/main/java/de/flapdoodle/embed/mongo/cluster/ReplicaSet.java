@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.cluster;
+
+import de.flapdoodle.embed.mongo.client.ClientActions;
+import de.flapdoodle.embed.mongo.client.ExecuteMongoClientAction;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.transitions.AsyncStart;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * starts all members of a replica set in parallel, initiates the replica set once with all members
+ * and waits until one member is primary and all others are secondaries
+ */
+@Value.Immutable
+public abstract class ReplicaSet {
+
+	public abstract String name();
+
+	public abstract ExecuteMongoClientAction<?> executeAction();
+
+	@Value.Default
+	public int members() {
+		return 3;
+	}
+
+	@Value.Default
+	public int oplogSize() {
+		return 0;
+	}
+
+	@Value.Default
+	public ImmutableMongod mongod() {
+		return Mongod.instance();
+	}
+
+	/**
+	 * arguments for each member, replication is set for each member
+	 */
+	@Value.Default
+	public MongodArguments mongodArguments() {
+		return MongodArguments.defaults();
+	}
+
+	/**
+	 * max time from initiate until all members are primary or secondary
+	 */
+	@Value.Default
+	public Duration initTimeout() {
+		return Duration.ofMinutes(1);
+	}
+
+	@Value.Check
+	protected void check() {
+		if (members() < 1) {
+			throw new IllegalArgumentException("members must be greater than 0: " + members());
+		}
+	}
+
+	@Value.Auxiliary
+	public RunningReplicaSet start(Version version, Listener... listener) {
+		MongodArguments memberArguments = mongodArguments().withReplication(Storage.of(name(), oplogSize()));
+		Mongod member = mongod().withMongodArguments(Start.to(MongodArguments.class).initializedWith(memberArguments));
+
+		ExecutorService executor = Executors.newFixedThreadPool(members(), Clusters.daemonThreads("replica-set-" + name()));
+		try {
+			List<CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>>> starting = IntStream.range(0, members())
+				.mapToObj(i -> member.startAsync(version, executor, listener))
+				.collect(Collectors.toList());
+
+			List<TransitionWalker.ReachedState<RunningMongodProcess>> running = AsyncStart.joinAll(starting);
+			try {
+				Duration initTime = ClientActions.initiateReplicaSet(executeAction(), name(), memberArguments.isConfigServer(),
+					running.stream().map(TransitionWalker.ReachedState::current).collect(Collectors.toList()),
+					initTimeout());
+				return new RunningReplicaSet(name(), running, initTime);
+			}
+			catch (RuntimeException rx) {
+				Clusters.closeAll(running);
+				throw rx;
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	public static ImmutableReplicaSet.Builder builder(String name) {
+		return ImmutableReplicaSet.builder().name(name);
+	}
+}
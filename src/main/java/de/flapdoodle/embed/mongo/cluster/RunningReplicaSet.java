@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.cluster;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RunningReplicaSet implements AutoCloseable {
+
+	private final String name;
+	private final List<TransitionWalker.ReachedState<RunningMongodProcess>> members;
+	private final Duration initTime;
+
+	RunningReplicaSet(String name, List<TransitionWalker.ReachedState<RunningMongodProcess>> members, Duration initTime) {
+		this.name = name;
+		this.members = new ArrayList<>(members);
+		this.initTime = initTime;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public List<RunningMongodProcess> members() {
+		return members.stream()
+			.map(TransitionWalker.ReachedState::current)
+			.collect(Collectors.toList());
+	}
+
+	public List<ServerAddress> serverAddresses() {
+		return members().stream()
+			.map(RunningMongodProcess::getServerAddress)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return replica set name and member addresses, as used for mongos --configdb or addShard
+	 */
+	public String hosts() {
+		return name + "/" + serverAddresses().stream()
+			.map(ServerAddress::toString)
+			.collect(Collectors.joining(","));
+	}
+
+	public String connectionString() {
+		return "mongodb://" + serverAddresses().stream()
+			.map(ServerAddress::toString)
+			.collect(Collectors.joining(",")) + "/?replicaSet=" + name;
+	}
+
+	/**
+	 * @return time from replica set initiate until one member was elected as primary and all other members became secondaries
+	 */
+	public Duration initTime() {
+		return initTime;
+	}
+
+	@Override
+	public void close() {
+		Clusters.closeAll(members);
+	}
+}
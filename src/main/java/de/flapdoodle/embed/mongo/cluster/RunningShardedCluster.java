@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.cluster;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.transitions.RunningMongoProcess;
+import de.flapdoodle.embed.mongo.transitions.RunningMongosProcess;
+import de.flapdoodle.embed.mongo.transitions.ShutdownCoordinator;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RunningShardedCluster implements AutoCloseable {
+
+	private static final Duration STOP_DEADLINE = Duration.ofSeconds(30);
+
+	private final RunningReplicaSet configServers;
+	private final List<RunningReplicaSet> shards;
+	private final List<TransitionWalker.ReachedState<RunningMongosProcess>> routers;
+	private final Duration startupTime;
+
+	RunningShardedCluster(
+		RunningReplicaSet configServers,
+		List<RunningReplicaSet> shards,
+		List<TransitionWalker.ReachedState<RunningMongosProcess>> routers,
+		Duration startupTime
+	) {
+		this.configServers = configServers;
+		this.shards = new ArrayList<>(shards);
+		this.routers = new ArrayList<>(routers);
+		this.startupTime = startupTime;
+	}
+
+	public RunningReplicaSet configServers() {
+		return configServers;
+	}
+
+	public List<RunningReplicaSet> shards() {
+		return new ArrayList<>(shards);
+	}
+
+	public List<RunningMongosProcess> routers() {
+		return routers.stream()
+			.map(TransitionWalker.ReachedState::current)
+			.collect(Collectors.toList());
+	}
+
+	public String connectionString() {
+		return "mongodb://" + routers().stream()
+			.map(RunningMongosProcess::getServerAddress)
+			.map(ServerAddress::toString)
+			.collect(Collectors.joining(","));
+	}
+
+	/**
+	 * @return time until all shards were listed by the routers
+	 */
+	public Duration startupTime() {
+		return startupTime;
+	}
+
+	/**
+	 * stops routers first, then all shards and at last the config servers
+	 */
+	@Override
+	public void close() {
+		List<RunningMongoProcess> processes = new ArrayList<>(routers());
+		shards.forEach(shard -> processes.addAll(shard.members()));
+		processes.addAll(configServers.members());
+		ShutdownCoordinator.instance().stop(processes, STOP_DEADLINE);
+
+		try {
+			Clusters.closeAll(routers);
+		}
+		finally {
+			try {
+				shards.parallelStream().forEach(RunningReplicaSet::close);
+			}
+			finally {
+				configServers.close();
+			}
+		}
+	}
+}
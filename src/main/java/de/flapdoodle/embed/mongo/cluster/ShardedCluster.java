@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.cluster;
+
+import de.flapdoodle.embed.mongo.client.ClientActions;
+import de.flapdoodle.embed.mongo.client.ExecuteMongoClientAction;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.MongosArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.transitions.AsyncStart;
+import de.flapdoodle.embed.mongo.transitions.ImmutableMongod;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.Mongos;
+import de.flapdoodle.embed.mongo.transitions.RunningMongosProcess;
+import de.flapdoodle.embed.mongo.transitions.ShutdownCoordinator;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * starts the config server replica set and all shard replica sets in parallel, starts the routers
+ * as soon as the config server replica set is ready and adds all shards in one batch
+ */
+@Value.Immutable
+public abstract class ShardedCluster {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardedCluster.class);
+
+	public abstract ExecuteMongoClientAction<?> executeAction();
+
+	/**
+	 * prefix of all replica set names
+	 */
+	@Value.Default
+	public String name() {
+		return "cluster";
+	}
+
+	@Value.Default
+	public int shards() {
+		return 2;
+	}
+
+	@Value.Default
+	public int membersPerShard() {
+		return 1;
+	}
+
+	@Value.Default
+	public int configServerMembers() {
+		return 1;
+	}
+
+	@Value.Default
+	public int routers() {
+		return 1;
+	}
+
+	@Value.Default
+	public ImmutableMongod mongod() {
+		return Mongod.instance();
+	}
+
+	@Value.Default
+	public MongodArguments mongodArguments() {
+		return MongodArguments.defaults();
+	}
+
+	@Value.Default
+	public Mongos mongos() {
+		return Mongos.instance();
+	}
+
+	/**
+	 * max time for each replica set to elect its primary and for the routers to list all shards
+	 */
+	@Value.Default
+	public Duration initTimeout() {
+		return Duration.ofMinutes(1);
+	}
+
+	@Value.Check
+	protected void check() {
+		if (shards() < 1) {
+			throw new IllegalArgumentException("shards must be greater than 0: " + shards());
+		}
+		if (routers() < 1) {
+			throw new IllegalArgumentException("routers must be greater than 0: " + routers());
+		}
+	}
+
+	@Value.Auxiliary
+	public ReplicaSet configServerReplicaSet() {
+		return replicaSet(name() + "-config", configServerMembers(), mongodArguments().withIsConfigServer(true));
+	}
+
+	@Value.Auxiliary
+	public List<ReplicaSet> shardReplicaSets() {
+		return IntStream.range(0, shards())
+			.mapToObj(i -> replicaSet(name() + "-shard" + i, membersPerShard(), mongodArguments().withIsShardServer(true)))
+			.collect(Collectors.toList());
+	}
+
+	private ReplicaSet replicaSet(String name, int members, MongodArguments arguments) {
+		return ReplicaSet.builder(name)
+			.executeAction(executeAction())
+			.members(members)
+			.mongod(mongod())
+			.mongodArguments(arguments)
+			.initTimeout(initTimeout())
+			.build();
+	}
+
+	@Value.Auxiliary
+	public RunningShardedCluster start(Version version, Listener... listener) {
+		long started = System.currentTimeMillis();
+		ExecutorService executor = Executors.newCachedThreadPool(Clusters.daemonThreads("sharded-cluster-" + name()));
+
+		try {
+			ReplicaSet configServerReplicaSet = configServerReplicaSet();
+			CompletableFuture<RunningReplicaSet> configServers = CompletableFuture.supplyAsync(() -> configServerReplicaSet.start(version, listener), executor);
+
+			List<CompletableFuture<RunningReplicaSet>> startingShards = shardReplicaSets().stream()
+				.map(shard -> CompletableFuture.supplyAsync(() -> shard.start(version, listener), executor))
+				.collect(Collectors.toList());
+
+			List<CompletableFuture<TransitionWalker.ReachedState<RunningMongosProcess>>> startingRouters = IntStream.range(0, routers())
+				.mapToObj(i -> configServers.thenApplyAsync(config -> startRouter(version, config, listener), executor))
+				.collect(Collectors.toList());
+
+			List<CompletableFuture<? extends AutoCloseable>> allParts = new ArrayList<>();
+			allParts.add(configServers);
+			allParts.addAll(startingShards);
+			allParts.addAll(startingRouters);
+			List<AutoCloseable> parts = AsyncStart.joinAll(allParts);
+
+			List<RunningReplicaSet> shards = startingShards.stream().map(CompletableFuture::join).collect(Collectors.toList());
+			List<TransitionWalker.ReachedState<RunningMongosProcess>> routers = startingRouters.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+			try {
+				ClientActions.addShards(executeAction(), routers.get(0).current(),
+					shards.stream().map(RunningReplicaSet::hosts).collect(Collectors.toList()),
+					initTimeout());
+			}
+			catch (RuntimeException rx) {
+				AsyncStart.closeAllQuietly(parts, rx);
+				throw rx;
+			}
+
+			Duration startupTime = Duration.ofMillis(System.currentTimeMillis() - started);
+			LOGGER.info("sharded cluster {} with {} shards and {} routers started after {}", name(), shards.size(), routers.size(), startupTime);
+
+			return new RunningShardedCluster(configServers.join(), shards, routers, startupTime);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private TransitionWalker.ReachedState<RunningMongosProcess> startRouter(Version version, RunningReplicaSet configServers, Listener... listener) {
+		return ShutdownCoordinator.instance().closeOnShutdown(mongos().transitions(version)
+			.replace(Start.to(MongosArguments.class).initializedWith(MongosArguments.defaults()
+				.withConfigDB(configServers.serverAddresses().stream()
+					.map(ServerAddress::toString)
+					.collect(Collectors.joining(",")))
+				.withReplicaSet(configServers.name())))
+			.walker()
+			.initState(StateID.of(RunningMongosProcess.class), listener));
+	}
+
+	public static ImmutableShardedCluster.Builder builder() {
+		return ImmutableShardedCluster.builder();
+	}
+}
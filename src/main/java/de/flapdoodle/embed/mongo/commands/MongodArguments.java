@@ -23,6 +23,7 @@ package de.flapdoodle.embed.mongo.commands;
 import de.flapdoodle.embed.mongo.config.Net;
 import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.ServerFeature;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.mongo.packageresolver.Feature;
 import de.flapdoodle.embed.mongo.types.DatabaseDir;
@@ -117,6 +118,8 @@ public abstract class MongodArguments {
 
 	public abstract Map<String, String> args();
 
+	public abstract Optional<MongodProfile> profile();
+
 	@Value.Auxiliary
 	public List<String> asArguments(
 		Platform platform,
@@ -145,8 +148,22 @@ public abstract class MongodArguments {
 
 		builder.add(/*executable.toAbsolutePath().toString(),*/ "--dbpath", dbDirectory.toAbsolutePath().toString());
 
-		config.params().forEach((key, val) -> builder.add("--setParameter", format("%s=%s", key, val)));
-		config.args().forEach((key, val) -> {
+		boolean noJournal = !version.enabled(Feature.JOURNAL_ALWAYS_ON) && config.useNoJournal() && !config.isConfigServer()
+			&& !config.profile().map(MongodProfile::durable).orElse(false);
+		boolean wiredTiger = config.storageEngine().map("wiredTiger"::equals).orElse(version.enabled(ServerFeature.WIRED_TIGER_DEFAULT));
+
+		// explicit params and args override the profile
+		Map<String, String> params = new LinkedHashMap<>();
+		Map<String, String> args = new LinkedHashMap<>();
+		config.profile().ifPresent(profile -> {
+			params.putAll(profile.params(version));
+			args.putAll(profile.args(version, wiredTiger, !noJournal));
+		});
+		params.putAll(config.params());
+		args.putAll(config.args());
+
+		params.forEach((key, val) -> builder.add("--setParameter", format("%s=%s", key, val)));
+		args.forEach((key, val) -> {
 			builder.add(key);
 			if (!val.isEmpty()) {
 				builder.add(val);
@@ -164,7 +181,7 @@ public abstract class MongodArguments {
 
 		builder.addIf(!version.enabled(Feature.DISABLE_USE_PREALLOC) && config.useNoPrealloc(), "--noprealloc");
 		builder.addIf(!version.enabled(Feature.DISABLE_USE_SMALL_FILES) && config.useSmallFiles(), "--smallfiles");
-		builder.addIf(!version.enabled(Feature.JOURNAL_ALWAYS_ON) && config.useNoJournal() && !config.isConfigServer(),"--nojournal");
+		builder.addIf(noJournal,"--nojournal");
 		builder.addIf(config.master(),"--master");
 
 		if (config.storageEngine().isPresent()) {
@@ -181,13 +198,24 @@ public abstract class MongodArguments {
 
 		builder.addIf(!version.enabled(Feature.NO_HTTP_INTERFACE_ARG),"--nohttpinterface");
 
-		builder.add("--port");
-		builder.add("" + net.getPort());
-		builder.addIf(net.isIpv6(), "--ipv6");
+		if (net.getUnixSocket().isPresent()) {
+			Path unixSocket = net.getUnixSocket().get();
+			// a socket path as the only bind_ip disables the tcp listener, --nounixsocket would disable this socket too,
+			// the default socket (mongodb-<port>.sock) is moved next to it
+			builder.add("--bind_ip", unixSocket.toString());
+			if (unixSocket.getParent() != null) {
+				builder.add("--unixSocketPrefix", unixSocket.getParent().toString());
+			}
+		} else {
+			builder.add("--port");
+			builder.add("" + net.getPort());
 
-		Optional<String> bindIp = net.getBindIp();
-		if (bindIp.isPresent()) {
-			builder.add("--bind_ip", Objects.equals("localhost", bindIp.get()) && version.enabled(Feature.NO_BIND_IP_TO_LOCALHOST) ? "127.0.0.1" : bindIp.get());
+			builder.addIf(net.isIpv6(), "--ipv6");
+
+			Optional<String> bindIp = net.getBindIp();
+			if (bindIp.isPresent()) {
+				builder.add("--bind_ip", Objects.equals("localhost", bindIp.get()) && version.enabled(Feature.NO_BIND_IP_TO_LOCALHOST) ? "127.0.0.1" : bindIp.get());
+			}
 		}
 
 		if (config.replication().isPresent()) {
@@ -198,7 +226,7 @@ public abstract class MongodArguments {
 
 		builder.addIf(config.isConfigServer(),"--configsvr");
 		builder.addIf(config.isShardServer(),"--shardsvr");
-		builder.addIf(version.enabled(Feature.SYNC_DELAY) && !config.useDefaultSyncDelay(),"--syncdelay=" + config.syncDelay());
+		builder.addIf(version.enabled(Feature.SYNC_DELAY) && !config.useDefaultSyncDelay() && !args.containsKey("--syncdelay"),"--syncdelay=" + config.syncDelay());
 		builder.addIf(version.enabled(Feature.TEXT_SEARCH) && config.enableTextSearch(),"--setParameter","textSearchEnabled=true");
 
 		return builder.build();
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.commands;
+
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.ServerFeature;
+import de.flapdoodle.embed.mongo.packageresolver.Feature;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * named sets of mongod flags, only flags the version accepts are used,
+ * explicit {@link MongodArguments#params()} and {@link MongodArguments#args()} take precedence
+ */
+public enum MongodProfile {
+	/**
+	 * small cache, no diagnostic data, no ttl monitor, journal flushed as rarely as possible
+	 */
+	FAST_EPHEMERAL(false),
+	/**
+	 * smallest possible cache and no diagnostic data
+	 */
+	LOW_MEMORY(false),
+	/**
+	 * journal and checkpoints as in production
+	 */
+	DURABLE(true);
+
+	private final boolean durable;
+
+	MongodProfile(boolean durable) {
+		this.durable = durable;
+	}
+
+	/**
+	 * if true, the journal is never disabled
+	 */
+	public boolean durable() {
+		return durable;
+	}
+
+	public Map<String, String> params(IFeatureAwareVersion version) {
+		Map<String, String> params = new LinkedHashMap<>();
+		switch (this) {
+			case FAST_EPHEMERAL:
+				if (version.enabled(ServerFeature.DIAGNOSTIC_DATA_COLLECTION)) {
+					params.put("diagnosticDataCollectionEnabled", "false");
+				}
+				params.put("ttlMonitorEnabled", "false");
+				break;
+			case LOW_MEMORY:
+				if (version.enabled(ServerFeature.DIAGNOSTIC_DATA_COLLECTION)) {
+					params.put("diagnosticDataCollectionEnabled", "false");
+				}
+				break;
+			case DURABLE:
+				break;
+		}
+		return params;
+	}
+
+	public Map<String, String> args(IFeatureAwareVersion version, boolean wiredTiger, boolean journal) {
+		Map<String, String> args = new LinkedHashMap<>();
+		boolean smallCache = wiredTiger && version.enabled(ServerFeature.WIRED_TIGER_CACHE_SIZE_GB_FRACTION);
+		switch (this) {
+			case FAST_EPHEMERAL:
+				if (smallCache) {
+					args.put("--wiredTigerCacheSizeGB", "0.25");
+				}
+				if (wiredTiger && journal && version.enabled(ServerFeature.JOURNAL_COMMIT_INTERVAL)) {
+					// maximum allowed value
+					args.put("--journalCommitInterval", "500");
+				}
+				break;
+			case LOW_MEMORY:
+				if (smallCache) {
+					args.put("--wiredTigerCacheSizeGB", "0.25");
+				}
+				break;
+			case DURABLE:
+				if (version.enabled(Feature.SYNC_DELAY)) {
+					// mongod default
+					args.put("--syncdelay", "60");
+				}
+				break;
+		}
+		return args;
+	}
+}
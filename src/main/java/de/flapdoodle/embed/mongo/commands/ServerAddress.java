@@ -22,7 +22,11 @@ package de.flapdoodle.embed.mongo.commands;
 
 import org.immutables.value.Value;
 
+import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
+import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.util.Optional;
 
 @Value.Immutable
 public abstract class ServerAddress {
@@ -36,9 +40,25 @@ public abstract class ServerAddress {
 		return defaultPort();
 	}
 
+	/**
+	 * if set, the server is only reachable with this unix socket
+	 */
+	public abstract Optional<Path> getUnixSocket();
+
+	/**
+	 * host:port, or the url encoded socket path as expected in a connection string
+	 */
 	@Override
 	@Value.Auxiliary
 	public String toString() {
+		if (getUnixSocket().isPresent()) {
+			try {
+				return URLEncoder.encode(getUnixSocket().get().toString(), "UTF-8");
+			}
+			catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
 		return getHost() + ":" + getPort();
 	}
 
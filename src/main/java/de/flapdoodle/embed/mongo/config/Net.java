@@ -25,6 +25,7 @@ import org.immutables.value.Value;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.util.Optional;
 
 @Value.Immutable
@@ -32,10 +33,28 @@ public abstract class Net {
 
 	public abstract Optional<String> getBindIp();
 
-	public abstract int getPort();
+	/**
+	 * required if there is no {@link #getUnixSocket()}, ignored otherwise
+	 */
+	@Value.Default
+	public int getPort() {
+		return 0;
+	}
 
 	public abstract boolean isIpv6();
 
+	/**
+	 * if set, the server only listens on this unix socket
+	 */
+	public abstract Optional<Path> getUnixSocket();
+
+	@Value.Check
+	protected void check() {
+		if (!getUnixSocket().isPresent() && getPort() == 0) {
+			throw new IllegalArgumentException("port is required if there is no unix socket");
+		}
+	}
+
 	@Value.Auxiliary
 	public Net withPort(int port) {
 		return ImmutableNet.copyOf(this).withPort(port);
@@ -57,14 +76,28 @@ public abstract class Net {
 			.build();
 	}
 
+	/**
+	 * no tcp listener, so there is no port
+	 */
+	public static Net unixSocket(Path socket) {
+		return builder()
+			.isIpv6(false)
+			.unixSocket(socket)
+			.build();
+	}
+
 	public static ImmutableNet.Builder builder() {
 		return ImmutableNet.builder();
 	}
 
+	/**
+	 * the port is reserved by {@link PortAllocator} until a process is listening on it,
+	 * the start failed or {@link PortAllocator#release(int)} is called
+	 */
 	public static Net defaults() {
 		try {
 			InetAddress localHost = de.flapdoodle.net.Net.getLocalHost();
-			int freeServerPort = de.flapdoodle.net.Net.freeServerPort(localHost);
+			int freeServerPort = PortAllocator.instance().reserve(localHost);
 			boolean localhostIsIPv6 = de.flapdoodle.net.Net.localhostIsIPv6();
 
 			return builder()
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.config;
+
+import org.immutables.value.Value;
+
+/**
+ * how much of the process output is kept for failure messages
+ */
+@Value.Immutable
+public abstract class OutputTail {
+
+	@Value.Default
+	public int maxLines() {
+		return 200;
+	}
+
+	@Value.Default
+	public int maxCharacters() {
+		return 64 * 1024;
+	}
+
+	@Value.Check
+	protected void check() {
+		if (maxLines() < 1) {
+			throw new IllegalArgumentException("maxLines < 1: " + maxLines());
+		}
+		if (maxCharacters() < 1) {
+			throw new IllegalArgumentException("maxCharacters < 1: " + maxCharacters());
+		}
+	}
+
+	public static ImmutableOutputTail.Builder builder() {
+		return ImmutableOutputTail.builder();
+	}
+
+	public static ImmutableOutputTail defaults() {
+		return builder().build();
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * hands out server ports without collisions between parallel jvm forks and parallel instances:
+ * every jvm starts in its own stripe of the port range (derived from the process id), every
+ * instance gets the next port of this stripe, and each port is reserved by a lock file
+ * until the process listens on it (or {@link #release(int)} is called)
+ * <p>
+ * if lock files can not be used (e.g. the lock dir is not writable), a free port is picked without reservation
+ */
+public final class PortAllocator {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PortAllocator.class);
+
+	// below the default ephemeral port range of linux (32768+) and windows (49152+)
+	static final int FIRST_PORT = 20000;
+	static final int LAST_PORT = 32767;
+	static final int STRIPES = 32;
+
+	private static final PortAllocator INSTANCE = new PortAllocator(
+		Paths.get(System.getProperty("java.io.tmpdir"), "embedmongo-ports-" + userName()),
+		FIRST_PORT, LAST_PORT, STRIPES, stripeOf(currentProcessId(), STRIPES));
+
+	private final Path lockDir;
+	private final int firstPort;
+	private final int ports;
+	private final AtomicInteger next;
+	private final ConcurrentMap<Integer, Reservation> reservations = new ConcurrentHashMap<>();
+
+	PortAllocator(Path lockDir, int firstPort, int lastPort, int stripes, int stripe) {
+		if (lastPort < firstPort) throw new IllegalArgumentException("invalid port range: " + firstPort + " - " + lastPort);
+		if (stripe < 0 || stripe >= stripes) throw new IllegalArgumentException("invalid stripe: " + stripe + " of " + stripes);
+		this.lockDir = lockDir;
+		this.firstPort = firstPort;
+		this.ports = lastPort - firstPort + 1;
+		this.next = new AtomicInteger((int) ((long) ports * stripe / stripes));
+	}
+
+	public static PortAllocator instance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return a port nobody else listens on or has reserved, the reservation is held until {@link #release(int)}
+	 */
+	public int reserve(InetAddress address) throws IOException {
+		try {
+			Files.createDirectories(lockDir);
+			for (int i = 0; i < ports; i++) {
+				int port = firstPort + Math.floorMod(next.getAndIncrement(), ports);
+				if (tryReserve(port, address)) {
+					LOGGER.trace("reserved port {}", port);
+					return port;
+				}
+			}
+			LOGGER.warn("no free port in range {} - {}, fallback to any free port", firstPort, firstPort + ports - 1);
+		}
+		catch (IOException ex) {
+			LOGGER.warn("could not reserve port in {}, fallback to any free port", lockDir, ex);
+		}
+		return de.flapdoodle.net.Net.freeServerPort(address);
+	}
+
+	/**
+	 * releases the reservation, noop if the port was not reserved by this allocator
+	 */
+	public void release(int port) {
+		Reservation reservation = reservations.remove(port);
+		if (reservation != null) {
+			reservation.close();
+			LOGGER.trace("released port {}", port);
+		}
+	}
+
+	boolean isReserved(int port) {
+		return reservations.containsKey(port);
+	}
+
+	private boolean tryReserve(int port, InetAddress address) {
+		Reservation placeholder = new Reservation(null, null);
+		if (reservations.putIfAbsent(port, placeholder) != null) {
+			return false;
+		}
+		Reservation reservation = null;
+		boolean reserved = false;
+		try {
+			reservation = tryLock(lockDir.resolve(port + ".lock"));
+			reserved = reservation != null && isFree(address, port);
+			return reserved;
+		}
+		finally {
+			if (reserved) {
+				reservations.put(port, reservation);
+			} else {
+				reservations.remove(port, placeholder);
+				if (reservation != null) reservation.close();
+			}
+		}
+	}
+
+	private static Reservation tryLock(Path lockFile) {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		}
+		catch (IOException ex) {
+			// e.g. lock file of another user
+			LOGGER.debug("could not open {}", lockFile, ex);
+			return null;
+		}
+		try {
+			FileLock lock = channel.tryLock();
+			if (lock != null) {
+				return new Reservation(channel, lock);
+			}
+		}
+		catch (OverlappingFileLockException ex) {
+			// held by this jvm, but not by this allocator
+		}
+		catch (IOException ex) {
+			LOGGER.debug("could not lock {}", lockFile, ex);
+		}
+		closeQuietly(channel);
+		return null;
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		try {
+			channel.close();
+		}
+		catch (IOException ex) {
+			LOGGER.debug("could not close lock file", ex);
+		}
+	}
+
+	/**
+	 * @return true if the port can be bound (nobody listens on it)
+	 */
+	public static boolean isFree(InetAddress address, int port) {
+		try (ServerSocket socket = new ServerSocket()) {
+			socket.bind(new InetSocketAddress(address, port));
+			return true;
+		}
+		catch (IOException ex) {
+			return false;
+		}
+	}
+
+	// lock files of other users can not be locked, so every user gets its own lock dir
+	static String userName() {
+		String name = System.getProperty("user.name", "");
+		String sanitized = name.replaceAll("[^A-Za-z0-9._-]", "_");
+		return sanitized.isEmpty() ? "unknown" : sanitized;
+	}
+
+	static int stripeOf(long processId, int stripes) {
+		return (int) Math.floorMod(processId, (long) stripes);
+	}
+
+	private static long currentProcessId() {
+		// pid@hostname
+		String name = ManagementFactory.getRuntimeMXBean().getName();
+		int idx = name.indexOf('@');
+		try {
+			return Long.parseLong(idx > 0 ? name.substring(0, idx) : name);
+		}
+		catch (NumberFormatException ex) {
+			return name.hashCode();
+		}
+	}
+
+	private static final class Reservation {
+		private final FileChannel channel;
+		private final FileLock lock;
+
+		private Reservation(FileChannel channel, FileLock lock) {
+			this.channel = channel;
+			this.lock = lock;
+		}
+
+		private void close() {
+			if (channel != null) {
+				try {
+					lock.release();
+					channel.close();
+				}
+				catch (IOException ex) {
+					LOGGER.warn("could not release port reservation", ex);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.config;
+
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * server is ready if it answers an isMaster handshake or the log output contains the success message,
+ * whatever comes first
+ */
+@Value.Immutable
+public abstract class ReadinessProbe {
+
+	@Value.Default
+	public boolean enabled() {
+		return true;
+	}
+
+	/**
+	 * first probe interval, doubled after each failed probe until {@link #maxInterval()} is reached
+	 */
+	@Value.Default
+	public Duration initialInterval() {
+		return Duration.ofMillis(10);
+	}
+
+	@Value.Default
+	public Duration maxInterval() {
+		return Duration.ofMillis(250);
+	}
+
+	public static ImmutableReadinessProbe.Builder builder() {
+		return ImmutableReadinessProbe.builder();
+	}
+
+	public static ImmutableReadinessProbe defaults() {
+		return builder().build();
+	}
+
+	public static ImmutableReadinessProbe disabled() {
+		return builder().enabled(false).build();
+	}
+}
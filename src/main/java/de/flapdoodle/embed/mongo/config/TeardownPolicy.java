@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.config;
+
+/**
+ * how a running process is stopped on teardown
+ */
+public enum TeardownPolicy {
+	/**
+	 * send shutdown command and wait until the process exits, signals are only used if this fails
+	 */
+	GRACEFUL,
+	/**
+	 * send shutdown command, but kill the process if it does not exit within a short grace period
+	 */
+	FAST_GRACEFUL,
+	/**
+	 * kill the process immediately, nothing is flushed to disk, only useful if the database is thrown away anyway
+	 */
+	KILL
+}
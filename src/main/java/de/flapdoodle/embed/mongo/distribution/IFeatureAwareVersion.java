@@ -30,6 +30,10 @@ public interface IFeatureAwareVersion extends Version {
 		return features().enabled(feature);
 	}
 
+	default boolean enabled(ServerFeature feature) {
+		return feature.enabledIn(this);
+	}
+
 	FeatureSet features();
 
 	@Deprecated
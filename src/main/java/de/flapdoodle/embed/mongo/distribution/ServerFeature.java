@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.distribution;
+
+import de.flapdoodle.embed.mongo.packageresolver.NumericVersion;
+
+import java.util.Optional;
+
+/**
+ * server features not covered by {@link de.flapdoodle.embed.mongo.packageresolver.Feature},
+ * a feature is disabled if the version has no version number (e.g. a custom build)
+ */
+public enum ServerFeature {
+	/**
+	 * commands over OP_MSG, the legacy OP_QUERY is removed in later versions
+	 */
+	OP_MSG(3, 6),
+	/**
+	 * structured (json) log output
+	 */
+	STRUCTURED_LOG(4, 4),
+	/**
+	 * default storage engine is wiredTiger
+	 */
+	WIRED_TIGER_DEFAULT(3, 2),
+	/**
+	 * setParameter diagnosticDataCollectionEnabled
+	 */
+	DIAGNOSTIC_DATA_COLLECTION(3, 2),
+	/**
+	 * --journalCommitInterval with wiredTiger
+	 */
+	JOURNAL_COMMIT_INTERVAL(3, 2),
+	/**
+	 * --wiredTigerCacheSizeGB accepts values below 1
+	 */
+	WIRED_TIGER_CACHE_SIZE_GB_FRACTION(3, 4);
+
+	private final int major;
+	private final int minor;
+
+	ServerFeature(int major, int minor) {
+		this.major = major;
+		this.minor = minor;
+	}
+
+	public boolean enabledIn(IFeatureAwareVersion version) {
+		return numericVersionOf(version)
+			.map(it -> it.isNewerOrEqual(major, minor, 0))
+			.orElse(false);
+	}
+
+	private static Optional<NumericVersion> numericVersionOf(IFeatureAwareVersion version) {
+		try {
+			return Optional.ofNullable(version.numericVersion());
+		}
+		catch (RuntimeException ex) {
+			// generic versions have no numeric version
+			return Optional.empty();
+		}
+	}
+}
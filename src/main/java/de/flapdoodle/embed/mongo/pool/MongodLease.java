@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.pool;
+
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public final class MongodLease implements AutoCloseable {
+
+	private final TransitionWalker.ReachedState<RunningMongodProcess> state;
+	private final Consumer<TransitionWalker.ReachedState<RunningMongodProcess>> onRelease;
+	private final AtomicBoolean released = new AtomicBoolean(false);
+
+	MongodLease(TransitionWalker.ReachedState<RunningMongodProcess> state, Consumer<TransitionWalker.ReachedState<RunningMongodProcess>> onRelease) {
+		this.state = state;
+		this.onRelease = onRelease;
+	}
+
+	public RunningMongodProcess current() {
+		if (released.get()) {
+			throw new IllegalStateException("lease already released");
+		}
+		return state.current();
+	}
+
+	@Override
+	public void close() {
+		if (released.compareAndSet(false, true)) {
+			onRelease.accept(state);
+		}
+	}
+}
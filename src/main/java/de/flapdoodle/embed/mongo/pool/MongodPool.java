@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.pool;
+
+import de.flapdoodle.embed.mongo.client.SyncClientAdapter;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+
+@Value.Immutable
+public abstract class MongodPool {
+
+	@Value.Default
+	public Mongod mongod() {
+		return Mongod.instance();
+	}
+
+	/**
+	 * number of started instances kept ready to be leased
+	 */
+	@Value.Default
+	public int size() {
+		return 2;
+	}
+
+	/**
+	 * idle instances are replaced after this time
+	 */
+	@Value.Default
+	public Duration maxIdle() {
+		return Duration.ofMinutes(5);
+	}
+
+	/**
+	 * max time a lease waits for a started instance
+	 */
+	@Value.Default
+	public Duration leaseTimeout() {
+		return Duration.ofMinutes(1);
+	}
+
+	/**
+	 * user databases are dropped, so the instance can be leased again without a restart
+	 * (use {@link ResetStrategy#restart()} to get a fresh instance for every lease)
+	 */
+	@Value.Default
+	public ResetStrategy resetStrategy() {
+		return ResetStrategy.dropDatabases(new SyncClientAdapter());
+	}
+
+	@Value.Check
+	protected void check() {
+		if (size() < 1) {
+			throw new IllegalArgumentException("size must be greater than 0: " + size());
+		}
+	}
+
+	@Value.Auxiliary
+	public RunningMongodPool start(Version version, Listener... listener) {
+		return start(version, Arrays.asList(listener));
+	}
+
+	@Value.Auxiliary
+	public RunningMongodPool start(Version version, Collection<Listener> listener) {
+		return new RunningMongodPool(this, version, listener);
+	}
+
+	public static ImmutableMongodPool instance() {
+		return builder().build();
+	}
+
+	public static ImmutableMongodPool.Builder builder() {
+		return ImmutableMongodPool.builder();
+	}
+}
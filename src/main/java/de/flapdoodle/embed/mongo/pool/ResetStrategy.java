@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.pool;
+
+import de.flapdoodle.embed.mongo.client.ClientActions;
+import de.flapdoodle.embed.mongo.client.ExecuteMongoClientAction;
+import de.flapdoodle.embed.mongo.client.ResetMode;
+import de.flapdoodle.embed.mongo.client.UsernamePassword;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+
+import java.util.Optional;
+
+/**
+ * decides what happens with a released mongod instance before it is handed out again
+ */
+@FunctionalInterface
+public interface ResetStrategy {
+	/**
+	 * @return false if the instance could not be reset and must be replaced by a fresh one
+	 */
+	boolean reset(RunningMongodProcess runningMongodProcess);
+
+	/**
+	 * instance is stopped and replaced by a fresh one
+	 */
+	static ResetStrategy restart() {
+		return runningMongodProcess -> false;
+	}
+
+	/**
+	 * instance is handed out again as it is
+	 */
+	static ResetStrategy keep() {
+		return runningMongodProcess -> true;
+	}
+
+	/**
+	 * all non system databases are dropped
+	 */
+	static ResetStrategy dropDatabases(ExecuteMongoClientAction<?> executeAction) {
+		return resetDatabases(executeAction, ResetMode.DROP_DATABASES, Optional.empty());
+	}
+
+	/**
+	 * same as {@link #dropDatabases(ExecuteMongoClientAction)}, if access control is enabled
+	 */
+	static ResetStrategy dropDatabases(ExecuteMongoClientAction<?> executeAction, UsernamePassword admin) {
+		return resetDatabases(executeAction, ResetMode.DROP_DATABASES, Optional.of(admin));
+	}
+
+	/**
+	 * all documents are removed, collections, indexes and users are kept
+	 */
+	static ResetStrategy clearCollections(ExecuteMongoClientAction<?> executeAction) {
+		return resetDatabases(executeAction, ResetMode.CLEAR_COLLECTIONS, Optional.empty());
+	}
+
+	/**
+	 * same as {@link #clearCollections(ExecuteMongoClientAction)}, if access control is enabled
+	 */
+	static ResetStrategy clearCollections(ExecuteMongoClientAction<?> executeAction, UsernamePassword admin) {
+		return resetDatabases(executeAction, ResetMode.CLEAR_COLLECTIONS, Optional.of(admin));
+	}
+
+	static ResetStrategy resetDatabases(ExecuteMongoClientAction<?> executeAction, ResetMode mode) {
+		return resetDatabases(executeAction, mode, Optional.empty());
+	}
+
+	static ResetStrategy resetDatabases(ExecuteMongoClientAction<?> executeAction, ResetMode mode, Optional<UsernamePassword> admin) {
+		return runningMongodProcess -> {
+			ClientActions.resetDatabases(executeAction, runningMongodProcess, mode, admin);
+			return true;
+		};
+	}
+}
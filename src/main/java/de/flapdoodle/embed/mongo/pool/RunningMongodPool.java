@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.pool;
+
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * keeps {@link MongodPool#size()} started mongod instances ready to be leased,
+ * replaces leased instances in the background and resets released instances with
+ * the configured {@link ResetStrategy}
+ */
+public class RunningMongodPool implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunningMongodPool.class);
+
+	private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final MongodPool config;
+	private final Version version;
+	private final List<Listener> listener;
+	private final ScheduledExecutorService executor;
+
+	private final LinkedBlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicReference<RuntimeException> lastStartFailure = new AtomicReference<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong started = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private volatile boolean closed = false;
+
+	RunningMongodPool(MongodPool config, Version version, Collection<Listener> listener) {
+		this.config = config;
+		this.version = version;
+		this.listener = new ArrayList<>(listener);
+		this.executor = Executors.newScheduledThreadPool(config.size(), daemonThreads());
+
+		long evictInterval = Math.max(1000L, config.maxIdle().toMillis() / 2);
+		executor.scheduleWithFixedDelay(this::evictIdle, evictInterval, evictInterval, TimeUnit.MILLISECONDS);
+
+		refill();
+	}
+
+	public MongodLease lease() {
+		checkNotClosed();
+
+		long start = System.nanoTime();
+		Idle next = idle.pollFirst();
+		if (next != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			next = waitForStartedInstance(start);
+		}
+		refill();
+
+		long waitTime = System.nanoTime() - start;
+		waitNanos.addAndGet(waitTime);
+		maxWaitNanos.accumulateAndGet(waitTime, Math::max);
+
+		return new MongodLease(next.state, this::release);
+	}
+
+	public MongodPoolStats stats() {
+		return MongodPoolStats.builder()
+			.hits(hits.get())
+			.misses(misses.get())
+			.started(started.get())
+			.discarded(discarded.get())
+			.waitTime(Duration.ofNanos(waitNanos.get()))
+			.maxWaitTime(Duration.ofNanos(maxWaitNanos.get()))
+			.build();
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(config.leaseTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+					LOGGER.warn("pool executor did not terminate in {}", config.leaseTimeout());
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			Idle next;
+			while ((next = idle.pollFirst()) != null) {
+				discard(next.state);
+			}
+			LOGGER.info("mongod pool closed: {}", stats());
+		}
+	}
+
+	private Idle waitForStartedInstance(long start) {
+		long deadline = start + config.leaseTimeout().toNanos();
+		try {
+			while (true) {
+				refill();
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new IllegalStateException("no mongod instance available after " + config.leaseTimeout(), lastStartFailure.get());
+				}
+				Idle next = idle.pollFirst(Math.min(remaining, POLL_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+				if (next != null) {
+					return next;
+				}
+				checkNotClosed();
+			}
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for mongod instance", ix);
+		}
+	}
+
+	private void release(TransitionWalker.ReachedState<RunningMongodProcess> state) {
+		if (closed) {
+			discard(state);
+			return;
+		}
+
+		inFlight.incrementAndGet();
+		try {
+			executor.execute(() -> {
+				try {
+					if (reset(state) && !closed && idle.size() + inFlight.get() <= config.size()) {
+						idle.addFirst(new Idle(state));
+					} else {
+						discard(state);
+					}
+				}
+				finally {
+					inFlight.decrementAndGet();
+				}
+				refill();
+			});
+		}
+		catch (RejectedExecutionException rx) {
+			inFlight.decrementAndGet();
+			discard(state);
+		}
+	}
+
+	private boolean reset(TransitionWalker.ReachedState<RunningMongodProcess> state) {
+		try {
+			return state.current().isAlive() && config.resetStrategy().reset(state.current());
+		}
+		catch (RuntimeException rx) {
+			LOGGER.warn("could not reset {}, discard instance", state.current().getServerAddress(), rx);
+			return false;
+		}
+	}
+
+	private void refill() {
+		while (!closed) {
+			int current = inFlight.get();
+			if (idle.size() + current >= config.size()) {
+				return;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				try {
+					executor.execute(this::startInstance);
+				}
+				catch (RejectedExecutionException rx) {
+					inFlight.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	private void startInstance() {
+		try {
+			if (!closed) {
+				TransitionWalker.ReachedState<RunningMongodProcess> state = config.mongod().start(version, listener);
+				if (closed) {
+					discard(state);
+				} else {
+					idle.addLast(new Idle(state));
+					started.incrementAndGet();
+				}
+			}
+		}
+		catch (RuntimeException rx) {
+			LOGGER.warn("could not start mongod instance for pool", rx);
+			lastStartFailure.set(rx);
+		}
+		finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+	 * idle instances are stopped after {@link MongodPool#maxIdle()} and replaced by new ones
+	 */
+	private void evictIdle() {
+		long now = System.nanoTime();
+		long maxIdle = config.maxIdle().toNanos();
+		for (Idle it : idle) {
+			if (now - it.since > maxIdle && idle.remove(it)) {
+				LOGGER.debug("stop idle instance {}", it.state.current().getServerAddress());
+				discard(it.state);
+			}
+		}
+		while (idle.size() > config.size()) {
+			Idle surplus = idle.pollLast();
+			if (surplus != null) {
+				discard(surplus.state);
+			}
+		}
+		refill();
+	}
+
+	private void discard(TransitionWalker.ReachedState<RunningMongodProcess> state) {
+		discarded.incrementAndGet();
+		try {
+			state.close();
+		}
+		catch (RuntimeException rx) {
+			LOGGER.warn("could not stop mongod instance", rx);
+		}
+	}
+
+	private void checkNotClosed() {
+		if (closed) {
+			throw new IllegalStateException("pool already closed");
+		}
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "mongod-pool-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private static final class Idle {
+		private final TransitionWalker.ReachedState<RunningMongodProcess> state;
+		private final long since = System.nanoTime();
+
+		private Idle(TransitionWalker.ReachedState<RunningMongodProcess> state) {
+			this.state = state;
+		}
+	}
+}
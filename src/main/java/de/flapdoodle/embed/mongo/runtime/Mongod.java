@@ -23,12 +23,19 @@ package de.flapdoodle.embed.mongo.runtime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -82,10 +89,20 @@ public class Mongod {
 		0x3d, (byte) 0x84, 0x51, (byte) 0xf9, 0x39, 0x27, 0x3f, (byte) 0x8d,
 		(byte) 0xf8, 0x00, 0x00};
 
+	/**
+	 * isMaster command as OP_QUERY, which is accepted by all versions as handshake
+	 */
+	private static final int IS_MASTER_REQUEST_ID = 1;
+	private static final int OP_REPLY = 1;
+	private static final int OP_MSG = 2013;
+	private static final int MAX_REPLY_LENGTH = 16 * 1024 * 1024;
+	private static final byte[] IS_MASTER_COMMAND = isMasterCommand();
+
+	private static final Pattern PROCESS_ID_PATTERN = Pattern.compile("MongoDB starting : pid=([1234567890]+) port", Pattern.MULTILINE);
+
 	private static final int SOCKET_TIMEOUT = 2000;
 	private static final int CONNECT_TIMEOUT = 2000;
 	private static final int BYTE_BUFFER_LENGTH = 512;
-	private static final int WAITING_TIME_SHUTDOWN_IN_MS = 100;
 
 	public static boolean sendShutdown(InetAddress hostname, int port) {
 		return sendShutdown(hostname, port, SHUTDOWN_COMMAND);
@@ -129,17 +146,198 @@ public class Mongod {
 		} finally {
 			try {
 				s.close();
-				Thread.sleep(WAITING_TIME_SHUTDOWN_IN_MS);
-			} catch (InterruptedException | IOException ix) {
+			} catch (IOException ix) {
 				LOGGER.warn("sendShutdown closing {}:{}", hostname, port, ix);
 			}
 		}
 		return false;
 	}
 
+	public static boolean sendShutdown(Path unixSocket) {
+		return sendShutdown(unixSocket, SHUTDOWN_COMMAND);
+	}
+
+	public static boolean sendShutdownLegacy(Path unixSocket) {
+		return sendShutdown(unixSocket, SHUTDOWN_COMMAND_LEGACY);
+	}
+
+	public static boolean sendShutdown(Path unixSocket, byte[] commandBinaryStream) {
+		if (!UnixSockets.isSupported()) {
+			LOGGER.warn("can not send shutdown to {}, unix sockets are not supported by this jvm", unixSocket);
+			return false;
+		}
+		try {
+			if (UnixSockets.sendAndRead(unixSocket, commandBinaryStream, new byte[BYTE_BUFFER_LENGTH], SOCKET_TIMEOUT) != -1) {
+				LOGGER.error("Got some response, should be an error message");
+				return false;
+			}
+			return true;
+		} catch (IOException iox) {
+			LOGGER.warn("sendShutdown {}", unixSocket, iox);
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the server answers the isMaster handshake with ok: 1
+	 */
+	public static boolean isMasterReplied(InetAddress hostname, int port, int timeout) {
+		try (Socket s = new Socket()) {
+			s.setSoTimeout(timeout);
+			s.connect(new InetSocketAddress(hostname, port), timeout);
+			OutputStream outputStream = s.getOutputStream();
+			outputStream.write(IS_MASTER_COMMAND);
+			outputStream.flush();
+
+			DataInputStream in = new DataInputStream(s.getInputStream());
+			byte[] header = new byte[16];
+			in.readFully(header);
+			int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(0);
+			if (length < header.length || length > MAX_REPLY_LENGTH) {
+				return false;
+			}
+			byte[] reply = Arrays.copyOf(header, length);
+			in.readFully(reply, header.length, length - header.length);
+			return isOkReply(reply);
+		}
+		catch (IOException iox) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the message is an OP_REPLY or OP_MSG to the isMaster query with ok: 1
+	 */
+	static boolean isOkReply(byte[] message) {
+		ByteBuffer buffer = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			int length = buffer.getInt();
+			buffer.getInt(); // requestId
+			int responseTo = buffer.getInt();
+			int opCode = buffer.getInt();
+			if (length != message.length || responseTo != IS_MASTER_REQUEST_ID) {
+				return false;
+			}
+			switch (opCode) {
+				case OP_REPLY:
+					// responseFlags, cursorId, startingFrom, numberReturned
+					buffer.getInt();
+					buffer.getLong();
+					buffer.getInt();
+					if (buffer.getInt() < 1) {
+						return false;
+					}
+					break;
+				case OP_MSG:
+					// flagBits, section kind 0 (body)
+					buffer.getInt();
+					if (buffer.get() != 0) {
+						return false;
+					}
+					break;
+				default:
+					return false;
+			}
+			return isOk(buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+		}
+		catch (BufferUnderflowException | IllegalArgumentException ex) {
+			return false;
+		}
+	}
+
+	private static boolean isOk(ByteBuffer document) {
+		int end = document.getInt();
+		while (document.position() < end - 1) {
+			byte type = document.get();
+			String name = cString(document);
+			boolean ok = "ok".equals(name);
+			switch (type) {
+				case 0x01: // double
+					double doubleValue = document.getDouble();
+					if (ok) return doubleValue == 1.0;
+					break;
+				case 0x10: // int32
+					int intValue = document.getInt();
+					if (ok) return intValue == 1;
+					break;
+				case 0x12: // int64
+					long longValue = document.getLong();
+					if (ok) return longValue == 1L;
+					break;
+				case 0x08: // boolean
+					byte boolValue = document.get();
+					if (ok) return boolValue == 1;
+					break;
+				case 0x02: // string
+				case 0x0D: // javascript
+				case 0x0E: // symbol
+					skip(document, document.getInt());
+					break;
+				case 0x03: // document
+				case 0x04: // array
+					skip(document, document.getInt() - 4);
+					break;
+				case 0x05: // binary
+					skip(document, document.getInt() + 1);
+					break;
+				case 0x07: // object id
+					skip(document, 12);
+					break;
+				case 0x09: // datetime
+				case 0x11: // timestamp
+					skip(document, 8);
+					break;
+				case 0x0A: // null
+				case 0x06: // undefined
+				case (byte) 0xFF: // min key
+				case 0x7F: // max key
+					break;
+				case 0x13: // decimal128
+					skip(document, 16);
+					break;
+				default:
+					// not needed for an isMaster reply
+					return false;
+			}
+		}
+		return false;
+	}
+
+	private static String cString(ByteBuffer buffer) {
+		int start = buffer.position();
+		while (buffer.get() != 0) {
+			// find end of string
+		}
+		byte[] bytes = new byte[buffer.position() - start - 1];
+		buffer.position(start);
+		buffer.get(bytes);
+		buffer.get();
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void skip(ByteBuffer buffer, int bytes) {
+		buffer.position(buffer.position() + bytes);
+	}
+
+	private static byte[] isMasterCommand() {
+		byte[] collection = "admin.$cmd\0".getBytes(StandardCharsets.US_ASCII);
+		byte[] command = "isMaster\0".getBytes(StandardCharsets.US_ASCII);
+		int documentLength = 4 + 1 + command.length + 4 + 1;
+		int messageLength = 16 + 4 + collection.length + 4 + 4 + documentLength;
+
+		return ByteBuffer.allocate(messageLength)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			// header: length, requestId, responseTo, OP_QUERY
+			.putInt(messageLength).putInt(IS_MASTER_REQUEST_ID).putInt(0).putInt(2004)
+			// flags, collection, numberToSkip, numberToReturn
+			.putInt(0).put(collection).putInt(0).putInt(-1)
+			// { isMaster: 1 }
+			.putInt(documentLength).put((byte) 0x10).put(command).putInt(1).put((byte) 0x00)
+			.array();
+	}
+
 	public static int getMongodProcessId(String output, int defaultValue) {
-		Pattern pattern = Pattern.compile("MongoDB starting : pid=([1234567890]+) port", Pattern.MULTILINE);
-		Matcher matcher = pattern.matcher(output);
+		Matcher matcher = PROCESS_ID_PATTERN.matcher(output);
 		if (matcher.find()) {
 			String value = matcher.group(1);
 			return Integer.parseInt(value);
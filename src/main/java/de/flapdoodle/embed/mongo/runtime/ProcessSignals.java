@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * sends signals to a process from within the jvm, using java.lang.ProcessHandle if available (java 9+),
+ * so no external kill command must be started
+ */
+public abstract class ProcessSignals {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProcessSignals.class);
+
+	private static final Optional<Api> API = Api.lookup();
+
+	private ProcessSignals() {
+		// no instance
+	}
+
+	public static boolean isSupported() {
+		return API.isPresent();
+	}
+
+	/**
+	 * graceful termination request (SIGTERM on unix like systems)
+	 *
+	 * @return true if the process exited within timeout
+	 */
+	public static boolean term(long pid, Duration timeout) {
+		return signal(pid, false, timeout);
+	}
+
+	/**
+	 * forcible termination (SIGKILL on unix like systems)
+	 *
+	 * @return true if the process exited within timeout
+	 */
+	public static boolean kill(long pid, Duration timeout) {
+		return signal(pid, true, timeout);
+	}
+
+	private static boolean signal(long pid, boolean forcibly, Duration timeout) {
+		if (!API.isPresent() || pid <= 0) {
+			return false;
+		}
+		try {
+			return API.get().signal(pid, forcibly, timeout);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			LOGGER.debug("could not signal process {}", pid, ex);
+			return false;
+		}
+	}
+
+	private static final class Api {
+		private final Method of;
+		private final Method destroy;
+		private final Method destroyForcibly;
+		private final Method onExit;
+		private final Method isAlive;
+
+		private Api(Class<?> processHandle) throws NoSuchMethodException {
+			this.of = processHandle.getMethod("of", long.class);
+			this.destroy = processHandle.getMethod("destroy");
+			this.destroyForcibly = processHandle.getMethod("destroyForcibly");
+			this.onExit = processHandle.getMethod("onExit");
+			this.isAlive = processHandle.getMethod("isAlive");
+		}
+
+		private boolean signal(long pid, boolean forcibly, Duration timeout) throws ReflectiveOperationException {
+			Optional<?> handle = (Optional<?>) of.invoke(null, pid);
+			if (!handle.isPresent()) {
+				// already gone
+				return true;
+			}
+			Object processHandle = handle.get();
+			if (!(Boolean) isAlive.invoke(processHandle)) {
+				return true;
+			}
+			if (!(Boolean) (forcibly ? destroyForcibly : destroy).invoke(processHandle)) {
+				return false;
+			}
+			CompletableFuture<?> exit = (CompletableFuture<?>) onExit.invoke(processHandle);
+			try {
+				exit.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+				return true;
+			}
+			catch (TimeoutException tx) {
+				return false;
+			}
+			catch (ExecutionException ex) {
+				throw new InvocationTargetException(ex.getCause());
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private static Optional<Api> lookup() {
+			try {
+				return Optional.of(new Api(Class.forName("java.lang.ProcessHandle")));
+			}
+			catch (ClassNotFoundException | NoSuchMethodException ex) {
+				LOGGER.debug("ProcessHandle not available, fallback to external commands");
+				return Optional.empty();
+			}
+		}
+	}
+}
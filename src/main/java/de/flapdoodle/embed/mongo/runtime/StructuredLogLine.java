@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.runtime;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * structured log line as written since mongodb 4.4, only the fields needed to watch the process are extracted,
+ * everything else is skipped without creating any objects
+ */
+public final class StructuredLogLine {
+
+	private final String line;
+	private final String severity;
+	private final long id;
+	private final String message;
+	private final int attrStart;
+
+	private StructuredLogLine(String line, String severity, long id, String message, int attrStart) {
+		this.line = line;
+		this.severity = severity;
+		this.id = id;
+		this.message = message;
+		this.attrStart = attrStart;
+	}
+
+	public String severity() {
+		return severity;
+	}
+
+	public long id() {
+		return id;
+	}
+
+	public String message() {
+		return message;
+	}
+
+	public boolean isError() {
+		return "E".equals(severity) || "F".equals(severity);
+	}
+
+	public boolean isFatal() {
+		return "F".equals(severity);
+	}
+
+	/**
+	 * @return numeric value of a direct child of the attr object
+	 */
+	public OptionalLong attrLong(String name) {
+		if (attrStart < 0) {
+			return OptionalLong.empty();
+		}
+		try {
+			Cursor cursor = new Cursor(line, attrStart);
+			if (!cursor.startObject()) {
+				return OptionalLong.empty();
+			}
+			while (cursor.nextKey()) {
+				if (cursor.keyEquals(name)) {
+					return cursor.isNumber()
+						? OptionalLong.of(cursor.readLong())
+						: OptionalLong.empty();
+				}
+				cursor.skipValue();
+				cursor.endOfEntry();
+			}
+			return OptionalLong.empty();
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+			return OptionalLong.empty();
+		}
+	}
+
+	public static Optional<StructuredLogLine> parse(String line) {
+		int start = 0;
+		while (start < line.length() && Character.isWhitespace(line.charAt(start))) start++;
+		if (start >= line.length() || line.charAt(start) != '{') {
+			return Optional.empty();
+		}
+
+		try {
+			Cursor cursor = new Cursor(line, start);
+			cursor.startObject();
+
+			String severity = null;
+			long id = -1;
+			String message = null;
+			int attrStart = -1;
+
+			while (cursor.nextKey()) {
+				if (cursor.keyEquals("s")) {
+					severity = cursor.readString();
+				} else if (cursor.keyEquals("id")) {
+					id = cursor.readLong();
+				} else if (cursor.keyEquals("msg")) {
+					message = cursor.readString();
+				} else if (cursor.keyEquals("attr")) {
+					attrStart = cursor.position();
+					cursor.skipValue();
+				} else {
+					cursor.skipValue();
+				}
+				cursor.endOfEntry();
+			}
+
+			return id != -1
+				? Optional.of(new StructuredLogLine(line, severity, id, message != null ? message : "", attrStart))
+				: Optional.empty();
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return line;
+	}
+
+	private static final class Cursor {
+		private final String src;
+		private int pos;
+		private int keyStart;
+		private int keyEnd;
+
+		private Cursor(String src, int pos) {
+			this.src = src;
+			this.pos = pos;
+		}
+
+		int position() {
+			return pos;
+		}
+
+		boolean startObject() {
+			skipWhitespace();
+			if (src.charAt(pos) != '{') {
+				return false;
+			}
+			pos++;
+			return true;
+		}
+
+		/**
+		 * @return false if the end of the current object is reached
+		 */
+		boolean nextKey() {
+			skipWhitespace();
+			if (src.charAt(pos) == '}') {
+				pos++;
+				return false;
+			}
+			expect('"');
+			keyStart = pos;
+			skipStringContent();
+			keyEnd = pos - 1;
+			skipWhitespace();
+			expect(':');
+			skipWhitespace();
+			return true;
+		}
+
+		boolean keyEquals(String key) {
+			return keyEnd - keyStart == key.length() && src.startsWith(key, keyStart);
+		}
+
+		void endOfEntry() {
+			skipWhitespace();
+			if (src.charAt(pos) == ',') {
+				pos++;
+			}
+		}
+
+		boolean isNumber() {
+			char c = src.charAt(pos);
+			return c == '-' || (c >= '0' && c <= '9');
+		}
+
+		long readLong() {
+			boolean negative = src.charAt(pos) == '-';
+			if (negative) pos++;
+			long value = 0;
+			int digits = 0;
+			while (pos < src.length() && Character.isDigit(src.charAt(pos))) {
+				value = value * 10 + (src.charAt(pos) - '0');
+				pos++;
+				digits++;
+			}
+			if (digits == 0) {
+				throw new IllegalArgumentException("number expected at " + pos);
+			}
+			// fraction or exponent
+			skipLiteral();
+			return negative ? -value : value;
+		}
+
+		String readString() {
+			expect('"');
+			StringBuilder sb = null;
+			int start = pos;
+			while (true) {
+				char c = src.charAt(pos++);
+				if (c == '"') {
+					return sb == null ? src.substring(start, pos - 1) : sb.toString();
+				}
+				if (c == '\\') {
+					if (sb == null) {
+						sb = new StringBuilder(src.substring(start, pos - 1));
+					}
+					char escaped = src.charAt(pos++);
+					switch (escaped) {
+						case 'b': sb.append('\b'); break;
+						case 'f': sb.append('\f'); break;
+						case 'n': sb.append('\n'); break;
+						case 'r': sb.append('\r'); break;
+						case 't': sb.append('\t'); break;
+						case 'u':
+							sb.append((char) Integer.parseInt(src.substring(pos, pos + 4), 16));
+							pos += 4;
+							break;
+						default: sb.append(escaped);
+					}
+				} else if (sb != null) {
+					sb.append(c);
+				}
+			}
+		}
+
+		void skipValue() {
+			char c = src.charAt(pos);
+			switch (c) {
+				case '"':
+					pos++;
+					skipStringContent();
+					break;
+				case '{':
+				case '[':
+					skipNested();
+					break;
+				default:
+					skipLiteral();
+			}
+		}
+
+		private void skipNested() {
+			int depth = 0;
+			do {
+				char c = src.charAt(pos++);
+				if (c == '"') {
+					skipStringContent();
+				} else if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					depth--;
+				}
+			} while (depth > 0);
+		}
+
+		private void skipStringContent() {
+			while (true) {
+				char c = src.charAt(pos++);
+				if (c == '"') return;
+				if (c == '\\') pos++;
+			}
+		}
+
+		private void skipLiteral() {
+			while (pos < src.length()) {
+				char c = src.charAt(pos);
+				if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) return;
+				pos++;
+			}
+		}
+
+		private void skipWhitespace() {
+			while (Character.isWhitespace(src.charAt(pos))) pos++;
+		}
+
+		private void expect(char c) {
+			if (src.charAt(pos) != c) {
+				throw new IllegalArgumentException("expected '" + c + "' at " + pos);
+			}
+			pos++;
+		}
+	}
+}
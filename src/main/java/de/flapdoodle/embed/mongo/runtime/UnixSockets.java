@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.runtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * connects to unix domain sockets with java.net.UnixDomainSocketAddress if available (java 16+)
+ */
+public abstract class UnixSockets {
+	private static final Logger LOGGER = LoggerFactory.getLogger(UnixSockets.class);
+
+	private static final Optional<Api> API = Api.lookup();
+
+	private UnixSockets() {
+		// no instance
+	}
+
+	public static boolean isSupported() {
+		return API.isPresent();
+	}
+
+	/**
+	 * sends the request and reads the first bytes of the response
+	 *
+	 * @return number of bytes read, -1 if the connection was closed by the server
+	 */
+	public static int sendAndRead(Path socket, byte[] request, byte[] response, long timeoutMs) throws IOException {
+		if (!API.isPresent()) {
+			throw new IOException("unix domain sockets not supported");
+		}
+		try (SocketChannel channel = API.get().connect(socket)) {
+			ByteBuffer out = ByteBuffer.wrap(request);
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+
+			// no read timeout for blocking channels, so wait with a selector
+			channel.configureBlocking(false);
+			try (Selector selector = Selector.open()) {
+				channel.register(selector, SelectionKey.OP_READ);
+				if (selector.select(timeoutMs) == 0) {
+					throw new IOException("no response from " + socket + " within " + timeoutMs + "ms");
+				}
+				return channel.read(ByteBuffer.wrap(response));
+			}
+		}
+	}
+
+	private static final class Api {
+		private final Method open;
+		private final Method addressOf;
+		private final ProtocolFamily unix;
+
+		private Api(Class<?> unixDomainSocketAddress) throws NoSuchMethodException {
+			this.open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+			this.addressOf = unixDomainSocketAddress.getMethod("of", Path.class);
+			this.unix = StandardProtocolFamily.valueOf("UNIX");
+		}
+
+		private SocketChannel connect(Path socket) throws IOException {
+			SocketChannel channel;
+			try {
+				channel = (SocketChannel) open.invoke(null, unix);
+			}
+			catch (InvocationTargetException ix) {
+				throw ix.getCause() instanceof IOException
+					? (IOException) ix.getCause()
+					: new IOException(ix.getCause());
+			}
+			catch (ReflectiveOperationException ex) {
+				throw new IOException(ex);
+			}
+			try {
+				channel.connect((SocketAddress) addressOf.invoke(null, socket));
+				return channel;
+			}
+			catch (IOException | RuntimeException ex) {
+				channel.close();
+				throw ex;
+			}
+			catch (ReflectiveOperationException ex) {
+				channel.close();
+				throw new IOException(ex);
+			}
+		}
+
+		private static Optional<Api> lookup() {
+			try {
+				return Optional.of(new Api(Class.forName("java.net.UnixDomainSocketAddress")));
+			}
+			catch (ClassNotFoundException | NoSuchMethodException | IllegalArgumentException ex) {
+				LOGGER.debug("UnixDomainSocketAddress not available, unix sockets not supported");
+				return Optional.empty();
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.store;
+
+import de.flapdoodle.embed.mongo.util.Hashes;
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.archives.ImmutableExtractedFileSet;
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.store.ExtractedFileSetStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * remembers which extracted file set belongs to an archive (identified by path, size and last modified time),
+ * so that the wrapped store must not hash the archive content again on each start
+ */
+public class IndexedExtractedFileSetStore implements ExtractedFileSetStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexedExtractedFileSetStore.class);
+
+	private static final String ARCHIVE = "archive";
+	private static final String SIZE = "size";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final String BASE_DIR = "baseDir";
+	private static final String EXECUTABLE = "executable";
+	private static final String LIBRARY = "library.";
+
+	private final ExtractedFileSetStore delegate;
+	private final Path indexDir;
+
+	public IndexedExtractedFileSetStore(ExtractedFileSetStore delegate, Path indexDir) {
+		this.delegate = delegate;
+		this.indexDir = indexDir;
+	}
+
+	@Override
+	public Optional<ExtractedFileSet> extractedFileSet(Path archive, FileSet fileSet) {
+		Path indexFile = indexFile(archive, fileSet);
+		Optional<BasicFileAttributes> attributes = attributesOf(archive);
+
+		if (attributes.isPresent()) {
+			Optional<ExtractedFileSet> indexed = read(indexFile, archive, attributes.get());
+			if (indexed.isPresent()) {
+				return indexed;
+			}
+		}
+
+		Optional<ExtractedFileSet> extracted = delegate.extractedFileSet(archive, fileSet);
+		if (extracted.isPresent() && attributes.isPresent()) {
+			write(indexFile, archive, attributes.get(), extracted.get());
+		}
+		return extracted;
+	}
+
+	@Override
+	public ExtractedFileSet store(Path archive, FileSet fileSet, ExtractedFileSet src) throws IOException {
+		ExtractedFileSet stored = delegate.store(archive, fileSet, src);
+		attributesOf(archive)
+			.ifPresent(attributes -> write(indexFile(archive, fileSet), archive, attributes, stored));
+		return stored;
+	}
+
+	private Path indexFile(Path archive, FileSet fileSet) {
+		return indexDir.resolve(Hashes.sha256(archive.toAbsolutePath() + "|" + fileSet) + ".properties");
+	}
+
+	private static Optional<ExtractedFileSet> read(Path indexFile, Path archive, BasicFileAttributes attributes) {
+		if (!Files.isRegularFile(indexFile)) {
+			return Optional.empty();
+		}
+
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		catch (IOException iox) {
+			LOGGER.debug("could not read {}", indexFile, iox);
+			return Optional.empty();
+		}
+
+		boolean sameArchive = archive.toAbsolutePath().toString().equals(properties.getProperty(ARCHIVE))
+			&& String.valueOf(attributes.size()).equals(properties.getProperty(SIZE))
+			&& String.valueOf(attributes.lastModifiedTime().toMillis()).equals(properties.getProperty(LAST_MODIFIED));
+
+		if (!sameArchive || properties.getProperty(EXECUTABLE) == null || properties.getProperty(BASE_DIR) == null) {
+			return Optional.empty();
+		}
+
+		ImmutableExtractedFileSet.Builder builder = ExtractedFileSet.builder(Paths.get(properties.getProperty(BASE_DIR)))
+			.executable(Paths.get(properties.getProperty(EXECUTABLE)));
+		for (int i = 0; properties.getProperty(LIBRARY + i) != null; i++) {
+			builder.addLibraryFiles(Paths.get(properties.getProperty(LIBRARY + i)));
+		}
+		ExtractedFileSet fileSet = builder.build();
+
+		// a partially deleted file set must be extracted again
+		if (!Files.isRegularFile(fileSet.executable()) || !fileSet.libraryFiles().stream().allMatch(Files::isRegularFile)) {
+			LOGGER.debug("{} references missing files, ignore it", indexFile);
+			return Optional.empty();
+		}
+		return Optional.of(fileSet);
+	}
+
+	private void write(Path indexFile, Path archive, BasicFileAttributes attributes, ExtractedFileSet fileSet) {
+		Properties properties = new Properties();
+		properties.setProperty(ARCHIVE, archive.toAbsolutePath().toString());
+		properties.setProperty(SIZE, String.valueOf(attributes.size()));
+		properties.setProperty(LAST_MODIFIED, String.valueOf(attributes.lastModifiedTime().toMillis()));
+		properties.setProperty(BASE_DIR, fileSet.baseDir().toAbsolutePath().toString());
+		properties.setProperty(EXECUTABLE, fileSet.executable().toAbsolutePath().toString());
+		int i = 0;
+		for (Path library : fileSet.libraryFiles()) {
+			properties.setProperty(LIBRARY + i++, library.toAbsolutePath().toString());
+		}
+
+		try {
+			Files.createDirectories(indexDir);
+			Path tempFile = Files.createTempFile(indexDir, "index", ".tmp");
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				properties.store(writer, "extracted file set of " + archive.getFileName());
+			}
+			Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException iox) {
+			LOGGER.warn("could not write index {}", indexFile, iox);
+		}
+	}
+
+	private static Optional<BasicFileAttributes> attributesOf(Path archive) {
+		try {
+			return Optional.of(Files.readAttributes(archive, BasicFileAttributes.class));
+		}
+		catch (IOException iox) {
+			return Optional.empty();
+		}
+	}
+}
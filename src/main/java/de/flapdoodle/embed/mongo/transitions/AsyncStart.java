@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.reverse.TransitionWalker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * start and stop transitions without blocking the caller, so that independent servers can be started together
+ */
+public abstract class AsyncStart {
+
+	private AsyncStart() {
+		// no instance
+	}
+
+	public static <T> CompletableFuture<TransitionWalker.ReachedState<T>> start(Supplier<TransitionWalker.ReachedState<T>> start, Executor executor) {
+		return CompletableFuture.supplyAsync(start, executor);
+	}
+
+	/**
+	 * waits for all started parts, if one of them fails all other started parts are closed
+	 */
+	public static <T extends AutoCloseable> List<T> joinAll(List<? extends CompletableFuture<? extends T>> starting) {
+		List<T> started = new ArrayList<>();
+		RuntimeException failure = null;
+		for (CompletableFuture<? extends T> it : starting) {
+			try {
+				started.add(it.join());
+			}
+			catch (CompletionException | CancellationException ex) {
+				RuntimeException cause = ex.getCause() instanceof RuntimeException
+					? (RuntimeException) ex.getCause()
+					: ex;
+				if (failure == null) {
+					failure = cause;
+				} else if (failure != cause) {
+					failure.addSuppressed(cause);
+				}
+			}
+		}
+		if (failure != null) {
+			closeAllQuietly(started, failure);
+			throw failure;
+		}
+		return started;
+	}
+
+	/**
+	 * closes all parts, close failures are added to the failure which caused the close
+	 */
+	public static void closeAllQuietly(List<? extends AutoCloseable> parts, RuntimeException failure) {
+		for (AutoCloseable it : parts) {
+			try {
+				it.close();
+			}
+			catch (Exception ex) {
+				failure.addSuppressed(ex);
+			}
+		}
+	}
+
+	public static CompletableFuture<Void> closeAsync(TransitionWalker.ReachedState<?> reachedState, Executor executor) {
+		return CompletableFuture.runAsync(reachedState::close, executor);
+	}
+
+	/**
+	 * closes the state as soon as it is reached, a failed start is passed on
+	 */
+	public static <T> CompletableFuture<Void> closeAsync(CompletableFuture<TransitionWalker.ReachedState<T>> reachedState, Executor executor) {
+		return reachedState.thenAcceptAsync(TransitionWalker.ReachedState::close, executor);
+	}
+
+	public static CompletableFuture<Void> closeAllAsync(Collection<? extends TransitionWalker.ReachedState<?>> reachedStates, Executor executor) {
+		return CompletableFuture.allOf(reachedStates.stream()
+			.map(it -> closeAsync(it, executor))
+			.toArray(CompletableFuture[]::new));
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.embed.mongo.util.FileUtils;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.embed.process.io.directories.TempDir;
+import de.flapdoodle.embed.process.transitions.Directories;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import de.flapdoodle.types.Try;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * creates a new database dir as clone of a {@link DatabaseDirTemplate}
+ */
+@Value.Immutable
+public abstract class DatabaseDirFromTemplate implements Transition<DatabaseDir>, HasLabel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseDirFromTemplate.class);
+
+	@Value.Parameter
+	public abstract DatabaseDirTemplate template();
+
+	@Override
+	@Value.Default
+	public String transitionLabel() {
+		return "Clone database dir from template";
+	}
+
+	@Override
+	@Value.Default
+	public StateID<DatabaseDir> destination() {
+		return StateID.of(DatabaseDir.class);
+	}
+
+	@Value.Default
+	public StateID<TempDir> tempDir() {
+		return StateID.of(TempDir.class);
+	}
+
+	@Value.Default
+	public StateID<Version> version() {
+		return StateID.of(Version.class);
+	}
+
+	@Value.Default
+	public StateID<MongodArguments> mongodArguments() {
+		return StateID.of(MongodArguments.class);
+	}
+
+	@Override
+	@Value.Auxiliary
+	public Set<StateID<?>> sources() {
+		return StateID.setOf(tempDir(), version(), mongodArguments());
+	}
+
+	@Override
+	public State<DatabaseDir> result(StateLookup lookup) {
+		template().checkCompatible(lookup.of(version()), lookup.of(mongodArguments()));
+
+		return Directories.deleteOnTearDown(
+				TempDir.createDirectoryWith("mongod-database"),
+				Try.function((Path databaseDir) -> {
+					long started = System.currentTimeMillis();
+					FileUtils.cloneDirectory(template().databaseFiles(), databaseDir);
+					LOGGER.info("cloned database template {} in {} ms", template().directory(), System.currentTimeMillis() - started);
+					return DatabaseDir.of(databaseDir);
+				}).mapToUncheckedException(RuntimeException::new))
+			.apply(lookup.of(tempDir()));
+	}
+
+	public static ImmutableDatabaseDirFromTemplate of(DatabaseDirTemplate template) {
+		return ImmutableDatabaseDirFromTemplate.of(template);
+	}
+
+	public static ImmutableDatabaseDirFromTemplate of(Path template) {
+		return of(DatabaseDirTemplate.of(template));
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.embed.process.io.directories.TempDir;
+import de.flapdoodle.embed.process.transitions.Directories;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * creates the database dir on the candidate (or the temp dir) with the lowest fsync latency and enough
+ * free space, because journaling on slow file systems (e.g. overlayfs in containers) dominates the runtime
+ * <p>
+ * each location is probed once per jvm, the results are logged and available with {@link #probes()}
+ */
+@Value.Immutable
+public abstract class DatabaseDirOnFastestFileSystem implements Transition<DatabaseDir>, HasLabel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseDirOnFastestFileSystem.class);
+
+	private static final int PROBE_WRITES = 16;
+	private static final int PROBE_BLOCK_SIZE = 4 * 1024;
+
+	private static final ConcurrentMap<Path, FileSystemProbe> PROBES = new ConcurrentHashMap<>();
+
+	@Value.Immutable
+	public interface FileSystemProbe {
+		Path directory();
+		long usableSpace();
+		Duration writeLatency();
+		Duration fsyncLatency();
+		Optional<String> failure();
+	}
+
+	@Override
+	@Value.Default
+	public String transitionLabel() {
+		return "Create database dir on fastest file system";
+	}
+
+	@Override
+	@Value.Default
+	public StateID<DatabaseDir> destination() {
+		return StateID.of(DatabaseDir.class);
+	}
+
+	@Value.Default
+	public StateID<TempDir> tempDir() {
+		return StateID.of(TempDir.class);
+	}
+
+	/**
+	 * probed in addition to the temp dir
+	 */
+	@Value.Default
+	public List<Path> candidates() {
+		Path sharedMemory = Paths.get("/dev/shm");
+		return Files.isDirectory(sharedMemory) && Files.isWritable(sharedMemory)
+			? Collections.singletonList(sharedMemory)
+			: Collections.emptyList();
+	}
+
+	/**
+	 * locations with less usable space are skipped
+	 */
+	@Value.Default
+	public long expectedSize() {
+		return 256L * 1024 * 1024;
+	}
+
+	@Override
+	@Value.Auxiliary
+	public Set<StateID<?>> sources() {
+		return StateID.setOf(tempDir());
+	}
+
+	@Override
+	public State<DatabaseDir> result(StateLookup lookup) {
+		TempDir tempDir = lookup.of(tempDir());
+		Path fastest = fastest(tempDir.value());
+		TempDir baseDir = fastest.equals(tempDir.value().toAbsolutePath().normalize())
+			? tempDir
+			: TempDir.of(fastest);
+
+		return Directories.deleteOnTearDown(
+				TempDir.createDirectoryWith("mongod-database"),
+				DatabaseDir::of)
+			.apply(baseDir);
+	}
+
+	/**
+	 * @return the candidate with the lowest fsync latency and enough usable space, the temp dir as fallback
+	 */
+	@Value.Auxiliary
+	public Path fastest(Path tempDir) {
+		List<Path> locations = new ArrayList<>(candidates());
+		locations.add(tempDir);
+		locations.replaceAll(it -> it.toAbsolutePath().normalize());
+
+		Optional<FileSystemProbe> fastest = fastest(locations, expectedSize());
+		Path chosen = fastest.map(FileSystemProbe::directory).orElse(tempDir);
+		LOGGER.info("database dir location: {} (probes: {})", chosen, locations.stream()
+			.map(PROBES::get)
+			.filter(Objects::nonNull)
+			.map(DatabaseDirOnFastestFileSystem::asString)
+			.collect(Collectors.joining(", ")));
+		return chosen;
+	}
+
+	/**
+	 * probe results of all locations probed so far
+	 */
+	public static Map<Path, FileSystemProbe> probes() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(PROBES));
+	}
+
+	static Optional<FileSystemProbe> fastest(List<Path> locations, long expectedSize) {
+		return locations.stream()
+			.map(it -> PROBES.computeIfAbsent(it.toAbsolutePath().normalize(), DatabaseDirOnFastestFileSystem::probe))
+			.filter(it -> !it.failure().isPresent())
+			.filter(it -> it.usableSpace() >= expectedSize)
+			.min(Comparator.comparing(FileSystemProbe::fsyncLatency)
+				.thenComparing(FileSystemProbe::writeLatency));
+	}
+
+	static FileSystemProbe probe(Path directory) {
+		ImmutableFileSystemProbe.Builder builder = ImmutableFileSystemProbe.builder()
+			.directory(directory)
+			.usableSpace(0)
+			.writeLatency(Duration.ZERO)
+			.fsyncLatency(Duration.ZERO);
+
+		Path probeFile = null;
+		try {
+			builder.usableSpace(Files.getFileStore(directory).getUsableSpace());
+			probeFile = Files.createTempFile(directory, "fs-probe", ".tmp");
+
+			ByteBuffer block = ByteBuffer.allocate(PROBE_BLOCK_SIZE);
+			long writeNanos = 0;
+			long fsyncNanos = 0;
+			try (FileChannel channel = FileChannel.open(probeFile, StandardOpenOption.WRITE)) {
+				for (int i = 0; i < PROBE_WRITES; i++) {
+					block.clear();
+					long started = System.nanoTime();
+					while (block.hasRemaining()) {
+						channel.write(block);
+					}
+					long written = System.nanoTime();
+					channel.force(false);
+					writeNanos += written - started;
+					fsyncNanos += System.nanoTime() - written;
+				}
+			}
+			builder.writeLatency(Duration.ofNanos(writeNanos / PROBE_WRITES))
+				.fsyncLatency(Duration.ofNanos(fsyncNanos / PROBE_WRITES));
+		}
+		catch (IOException | RuntimeException ex) {
+			builder.failure(ex.toString());
+		}
+		finally {
+			if (probeFile != null) {
+				try {
+					Files.deleteIfExists(probeFile);
+				}
+				catch (IOException ex) {
+					LOGGER.debug("could not delete {}", probeFile, ex);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private static String asString(FileSystemProbe probe) {
+		return probe.failure().isPresent()
+			? probe.directory() + " failed: " + probe.failure().get()
+			: probe.directory() + " fsync " + probe.fsyncLatency().toNanos() / 1000 + "us, write "
+				+ probe.writeLatency().toNanos() / 1000 + "us, " + probe.usableSpace() / (1024 * 1024) + "MB free";
+	}
+
+	public static ImmutableDatabaseDirOnFastestFileSystem withDefaults() {
+		return builder().build();
+	}
+
+	public static ImmutableDatabaseDirOnFastestFileSystem.Builder builder() {
+		return ImmutableDatabaseDirOnFastestFileSystem.builder();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.embed.mongo.util.FileUtils;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.types.Try;
+import org.immutables.value.Value;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * a directory with database files of a stopped mongod, which can be used as
+ * starting point for new database directories (see {@link DatabaseDirFromTemplate})
+ * <p>
+ * a template is only usable for the same version and storage engine it was recorded with
+ */
+@Value.Immutable
+public abstract class DatabaseDirTemplate {
+
+	private static final String KEY = "key";
+
+	@Value.Parameter
+	public abstract Path directory();
+
+	@Value.Auxiliary
+	public Path databaseFiles() {
+		return directory().resolve("db");
+	}
+
+	@Value.Auxiliary
+	protected Path keyFile() {
+		return directory().resolve("template.properties");
+	}
+
+	@Value.Auxiliary
+	public Optional<String> key() {
+		if (!Files.isRegularFile(keyFile())) {
+			return Optional.empty();
+		}
+		try (Reader reader = Files.newBufferedReader(keyFile(), StandardCharsets.UTF_8)) {
+			Properties properties = new Properties();
+			properties.load(reader);
+			return Optional.ofNullable(properties.getProperty(KEY));
+		}
+		catch (IOException iox) {
+			throw new RuntimeException("could not read " + keyFile(), iox);
+		}
+	}
+
+	@Value.Auxiliary
+	public void checkCompatible(Version version, MongodArguments mongodArguments) {
+		String expected = keyOf(version, mongodArguments);
+		Optional<String> key = key();
+		if (!key.isPresent() || !Files.isDirectory(databaseFiles())) {
+			throw new IllegalArgumentException("no database template found in " + directory());
+		}
+		if (!key.get().equals(expected)) {
+			throw new IllegalArgumentException("database template " + directory() + " was recorded with " + key.get() + ", but " + expected + " is needed");
+		}
+	}
+
+	/**
+	 * copy the database files into this template when the database dir is tear down
+	 */
+	@Value.Auxiliary
+	public Listener recordOnTearDown() {
+		AtomicReference<Version> version = new AtomicReference<>();
+		AtomicReference<MongodArguments> mongodArguments = new AtomicReference<>();
+
+		return Listener.typedBuilder()
+			.onStateReached(StateID.of(Version.class), version::set)
+			.onStateReached(StateID.of(MongodArguments.class), mongodArguments::set)
+			.onStateTearDown(StateID.of(DatabaseDir.class), databaseDir -> Try.run(() -> record(databaseDir.value(),
+				keyOf(version.get(), mongodArguments.get()))))
+			.build();
+	}
+
+	private void record(Path source, String key) throws IOException {
+		if (Files.exists(databaseFiles())) {
+			try (Stream<Path> files = Files.walk(databaseFiles())) {
+				files.sorted(Comparator.reverseOrder())
+					.forEach(path -> Try.run(() -> Files.delete(path)));
+			}
+		}
+		Files.createDirectories(databaseFiles());
+		FileUtils.cloneDirectory(source, databaseFiles());
+
+		Properties properties = new Properties();
+		properties.setProperty(KEY, key);
+		try (Writer writer = Files.newBufferedWriter(keyFile(), StandardCharsets.UTF_8)) {
+			properties.store(writer, "database dir template");
+		}
+	}
+
+	public static String keyOf(Version version, MongodArguments mongodArguments) {
+		return version.asInDownloadPath() + ":" + mongodArguments.storageEngine().orElse("default");
+	}
+
+	public static ImmutableDatabaseDirTemplate of(Path directory) {
+		return ImmutableDatabaseDirTemplate.of(directory);
+	}
+}
@@ -20,6 +20,7 @@
  */
 package de.flapdoodle.embed.mongo.transitions;
 
+import de.flapdoodle.embed.mongo.store.IndexedExtractedFileSetStore;
 import de.flapdoodle.embed.mongo.types.SystemEnv;
 import de.flapdoodle.embed.process.archives.ExtractedFileSet;
 import de.flapdoodle.embed.process.config.store.Package;
@@ -79,7 +80,9 @@ public interface ExtractFileSet {
 	default Transition<ExtractedFileSetStore> extractedFileSetStore() {
 		return Derive.given(PersistentDir.class)
 			.state(ExtractedFileSetStore.class)
-			.deriveBy(baseDir -> new ContentHashExtractedFileSetStore(baseDir.value().resolve("fileSets")))
+			.deriveBy(baseDir -> new IndexedExtractedFileSetStore(
+				new ContentHashExtractedFileSetStore(baseDir.value().resolve("fileSets")),
+				baseDir.value().resolve("fileSetIndex")))
 			.withTransitionLabel("extractedFileSetStore");
 	}
 	
@@ -100,6 +103,15 @@ public interface ExtractFileSet {
 			.withExtractedFileSetStore(StateID.of(ExtractedFileSetStore.class));
 	}
 
+	/**
+	 * if true, the package is extracted while it is downloaded (see {@link StreamingExtractPackage}),
+	 * {@link #extractPackage()} is not used then
+	 */
+	@Value.Default
+	default boolean streamingExtract() {
+		return false;
+	}
+
 	@Value.Default
 	default Transition<Package> packageOfDistribution() {
 		return PackageOfCommandDistribution.withDefaults();
@@ -113,9 +125,11 @@ public interface ExtractFileSet {
 			downloadCache(),
 			packageOfDistribution(),
 			progressListener(),
-			downloadPackage(),
+			LockedInPersistentDir.of(downloadPackage(), "download"),
 			extractedFileSetStore(),
-			extractPackage()
+			streamingExtract()
+				? LockedInPersistentDir.of(LockedInPersistentDir.of(StreamingExtractPackage.with(downloadPackage()), "extract"), "download")
+				: LockedInPersistentDir.of(extractPackage(), "extract")
 		);
 	}
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.util.Hashes;
+import de.flapdoodle.embed.mongo.util.InterProcessLock;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.io.directories.PersistentDir;
+import de.flapdoodle.embed.process.io.progress.ProgressListener;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import de.flapdoodle.types.Try;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * runs the wrapped transition while holding a lock in the persistent dir, so that only one process
+ * downloads or extracts a package, all other processes wait and reuse the result
+ */
+@Value.Immutable
+public abstract class LockedInPersistentDir<T> implements Transition<T>, HasLabel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LockedInPersistentDir.class);
+
+	@Value.Parameter
+	protected abstract Transition<T> delegate();
+
+	@Value.Parameter
+	protected abstract String lockName();
+
+	@Override
+	@Value.Auxiliary
+	public String transitionLabel() {
+		return delegate() instanceof HasLabel
+			? ((HasLabel) delegate()).transitionLabel()
+			: "locked " + lockName();
+	}
+
+	@Override
+	@Value.Auxiliary
+	public StateID<T> destination() {
+		return delegate().destination();
+	}
+
+	@Value.Default
+	public StateID<PersistentDir> persistentDir() {
+		return StateID.of(PersistentDir.class);
+	}
+
+	@Value.Default
+	public StateID<Package> distPackage() {
+		return StateID.of(Package.class);
+	}
+
+	@Value.Default
+	public StateID<ProgressListener> progressListener() {
+		return StateID.of(ProgressListener.class);
+	}
+
+	@Override
+	@Value.Auxiliary
+	public Set<StateID<?>> sources() {
+		Set<StateID<?>> sources = new LinkedHashSet<>(delegate().sources());
+		sources.add(persistentDir());
+		sources.add(distPackage());
+		sources.add(progressListener());
+		return sources;
+	}
+
+	@Override
+	public State<T> result(StateLookup lookup) {
+		Path lockFile = lookup.of(persistentDir()).value()
+			.resolve("locks")
+			.resolve(lockName() + "-" + hash(lookup.of(distPackage()).url()) + ".lock");
+
+		return Try.supplier(() -> {
+				try (InterProcessLock lock = InterProcessLock.lock(lockFile)) {
+					if (lock.waitTime() > 0) {
+						String message = "waited " + lock.waitTime() + " ms for " + lockFile;
+						lookup.of(progressListener()).info(transitionLabel(), message);
+						LOGGER.debug(message);
+					}
+					return delegate().result(lookup);
+				}
+			})
+			.mapToUncheckedException(RuntimeException::new)
+			.get();
+	}
+
+	private static String hash(String value) {
+		return Hashes.sha256(value).substring(0, 16);
+	}
+
+	public static <T> ImmutableLockedInPersistentDir<T> of(Transition<T> delegate, String lockName) {
+		return ImmutableLockedInPersistentDir.of(delegate, lockName);
+	}
+}
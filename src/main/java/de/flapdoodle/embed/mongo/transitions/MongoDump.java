@@ -23,12 +23,16 @@ package de.flapdoodle.embed.mongo.transitions;
 import de.flapdoodle.embed.mongo.commands.MongoDumpArguments;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Value.Immutable
 public class MongoDump implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
 	public Transitions transitions(de.flapdoodle.embed.process.distribution.Version version) {
@@ -47,9 +51,17 @@ public class MongoDump implements WorkspaceDefaults, VersionAndPlatform, Process
 	}
 
 	public TransitionWalker.ReachedState<ExecutedMongoDumpProcess> start(Version version) {
+		return start(version, new Listener[0]);
+	}
+
+	public TransitionWalker.ReachedState<ExecutedMongoDumpProcess> start(Version version, Listener... listener) {
 		return transitions(version)
 			.walker()
-			.initState(StateID.of(ExecutedMongoDumpProcess.class));
+			.initState(StateID.of(ExecutedMongoDumpProcess.class), listener);
+	}
+
+	public CompletableFuture<TransitionWalker.ReachedState<ExecutedMongoDumpProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongoDump instance() {
@@ -23,12 +23,16 @@ package de.flapdoodle.embed.mongo.transitions;
 import de.flapdoodle.embed.mongo.commands.MongoImportArguments;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Value.Immutable
 public class MongoImport implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
 	public Transitions transitions(de.flapdoodle.embed.process.distribution.Version version) {
@@ -46,9 +50,17 @@ public class MongoImport implements WorkspaceDefaults, VersionAndPlatform, Proce
 			);
 	}
 	public TransitionWalker.ReachedState<ExecutedMongoImportProcess> start(Version version) {
+		return start(version, new Listener[0]);
+	}
+
+	public TransitionWalker.ReachedState<ExecutedMongoImportProcess> start(Version version, Listener... listener) {
 		return transitions(version)
 			.walker()
-			.initState(StateID.of(ExecutedMongoImportProcess.class));
+			.initState(StateID.of(ExecutedMongoImportProcess.class), listener);
+	}
+
+	public CompletableFuture<TransitionWalker.ReachedState<ExecutedMongoImportProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongoImport instance() {
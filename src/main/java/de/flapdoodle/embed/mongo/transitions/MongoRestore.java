@@ -23,12 +23,16 @@ package de.flapdoodle.embed.mongo.transitions;
 import de.flapdoodle.embed.mongo.commands.MongoRestoreArguments;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Value.Immutable
 public class MongoRestore implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
 
@@ -48,9 +52,17 @@ public class MongoRestore implements WorkspaceDefaults, VersionAndPlatform, Proc
 	}
 
 	public TransitionWalker.ReachedState<ExecutedMongoRestoreProcess> start(Version version) {
+		return start(version, new Listener[0]);
+	}
+
+	public TransitionWalker.ReachedState<ExecutedMongoRestoreProcess> start(Version version, Listener... listener) {
 		return transitions(version)
 			.walker()
-			.initState(StateID.of(ExecutedMongoRestoreProcess.class));
+			.initState(StateID.of(ExecutedMongoRestoreProcess.class), listener);
+	}
+
+	public CompletableFuture<TransitionWalker.ReachedState<ExecutedMongoRestoreProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongoRestore instance() {
@@ -21,8 +21,13 @@
 package de.flapdoodle.embed.mongo.transitions;
 
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.OutputTail;
+import de.flapdoodle.embed.mongo.config.PortAllocator;
+import de.flapdoodle.embed.mongo.config.ReadinessProbe;
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
 import de.flapdoodle.embed.process.archives.ExtractedFileSet;
 import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.io.ProcessOutput;
 import de.flapdoodle.embed.process.types.*;
 import de.flapdoodle.os.Platform;
@@ -31,14 +36,19 @@ import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.StateLookup;
 import de.flapdoodle.reverse.Transition;
 import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 public abstract class MongoServerStarter<T extends RunningProcess> implements Transition<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MongoServerStarter.class);
+
 	@Value.Default
 	public StateID<ExtractedFileSet> processExecutable() {
 		return StateID.of(ExtractedFileSet.class);
@@ -83,6 +93,43 @@ public abstract class MongoServerStarter<T extends RunningProcess> implements Tr
 		return StateID.of(Net.class);
 	}
 
+	@Value.Default
+	public StateID<Version> version() {
+		return StateID.of(Version.class);
+	}
+
+	@Value.Default
+	public long startupTimeout() {
+		return 20000;
+	}
+
+	@Value.Default
+	public ReadinessProbe readinessProbe() {
+		return ReadinessProbe.defaults();
+	}
+
+	/**
+	 * part of the process output kept for failure messages
+	 */
+	@Value.Default
+	public OutputTail outputTail() {
+		return OutputTail.defaults();
+	}
+
+	@Value.Default
+	public TeardownPolicy teardownPolicy() {
+		return TeardownPolicy.GRACEFUL;
+	}
+
+	/**
+	 * if the port is already in use, the process is started again with another port
+	 * (only the process is restarted, all other states are reused)
+	 */
+	@Value.Default
+	public int portConflictRetries() {
+		return 3;
+	}
+
 	@Override
 	public Set<StateID<?>> sources() {
 		return StateID.setOf(
@@ -94,12 +141,43 @@ public abstract class MongoServerStarter<T extends RunningProcess> implements Tr
 			processOutput(),
 			supportConfig(),
 			platform(),
-			net()
+			net(),
+			version()
 		);
 	}
 
+	/**
+	 * used to stop routers before shards and config servers
+	 */
+	protected ShutdownCoordinator.Role shutdownRole(StateLookup lookup) {
+		return ShutdownCoordinator.Role.SERVER;
+	}
+
+	/**
+	 * @deprecated override {@link #factory(long, Optional, SupportConfig, Platform, Net)}
+	 */
+	@Deprecated
 	@Value.Auxiliary
-	protected abstract RunningProcessFactory<T> factory(long startupTimeout, SupportConfig supportConfig, Platform platform, Net net);
+	protected RunningProcessFactory<T> factory(long startupTimeout, SupportConfig supportConfig, Platform platform, Net net) {
+		return factory(startupTimeout, Optional.empty(), supportConfig, platform, net);
+	}
+
+	/**
+	 * subclasses must override this or the deprecated variant without version,
+	 * readiness probe and output tail are taken from {@link #readinessProbe()} and {@link #outputTail()}
+	 */
+	@Value.Auxiliary
+	protected RunningProcessFactory<T> factory(long startupTimeout, Optional<Version> version, SupportConfig supportConfig, Platform platform, Net net) {
+		return factory(startupTimeout, supportConfig, platform, net);
+	}
+
+	/**
+	 * arguments for another start with a different port after a port conflict,
+	 * empty if they can not be created from the command arguments
+	 */
+	protected Optional<List<String>> argumentsWith(StateLookup lookup, Net net) {
+		return Optional.empty();
+	}
 
 	@Override
 	public State<T> result(StateLookup lookup) {
@@ -112,16 +190,47 @@ public abstract class MongoServerStarter<T extends RunningProcess> implements Tr
 		SupportConfig supportConfig = lookup.of(supportConfig());
 		Platform platform = lookup.of(platform());
 		Net net = lookup.of(net());
+		Version version = lookup.of(version());
 
 		try {
-			RunningProcessFactory<T> factory = factory(20000, supportConfig, platform, net);
-
-			T running = RunningProcess.start(factory, processWorkingDir, fileSet.executable(), arguments, environment, processConfig,
-				processOutput, supportConfig);
-
-			return State.of(running, RunningProcess::stop);
+			for (int retries = 0; ; retries++) {
+				RunningProcessFactory<T> factory = factory(startupTimeout(), Optional.of(version), supportConfig, platform, net);
+
+				try {
+					T running = RunningProcess.start(factory, processWorkingDir, fileSet.executable(), arguments, environment, processConfig,
+						processOutput, supportConfig);
+					if (!(running instanceof RunningMongoProcess)) {
+						return State.of(running, RunningProcess::stop);
+					}
+					RunningMongoProcess runningMongoProcess = (RunningMongoProcess) running;
+					if (retries > 0) {
+						LOGGER.info("started {} on port {} after {} port conflict(s)", runningMongoProcess.commandName(), net.getPort(), retries);
+						runningMongoProcess.portConflictRetries(retries);
+					}
+					runningMongoProcess.teardownPolicy(teardownPolicy());
+					ShutdownCoordinator.instance().register(runningMongoProcess, shutdownRole(lookup), teardownPolicy());
+
+					return State.of(running, it -> ((RunningMongoProcess) it).stop(teardownPolicy()));
+				}
+				catch (RuntimeException rx) {
+					PortAllocator.instance().release(net.getPort());
+					if (retries >= portConflictRetries() || !RunningMongoProcess.isPortConflict(rx) || net.getUnixSocket().isPresent()) {
+						throw rx;
+					}
+					Net retryNet = net.withPort(PortAllocator.instance().reserve(net.getServerAddress()));
+					Optional<List<String>> retryArguments = argumentsWith(lookup, retryNet);
+					if (!retryArguments.isPresent()) {
+						PortAllocator.instance().release(retryNet.getPort());
+						throw rx;
+					}
+					LOGGER.debug("port {} already in use, retry with port {}", net.getPort(), retryNet.getPort());
+					net = retryNet;
+					arguments = retryArguments.get();
+				}
+			}
 		}
 		catch (IOException ix) {
+			PortAllocator.instance().release(net.getPort());
 			String hint = "";
 			if (ix.getMessage().contains("Bad CPU type in executable")) {
 				hint = " - " + platform.toString();
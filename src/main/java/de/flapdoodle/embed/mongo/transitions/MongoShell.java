@@ -23,12 +23,16 @@ package de.flapdoodle.embed.mongo.transitions;
 import de.flapdoodle.embed.mongo.commands.MongoShellArguments;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Value.Immutable
 public class MongoShell implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
 
@@ -48,9 +52,17 @@ public class MongoShell implements WorkspaceDefaults, VersionAndPlatform, Proces
 	}
 
 	public TransitionWalker.ReachedState<ExecutedMongoShellProcess> start(Version version) {
+		return start(version, new Listener[0]);
+	}
+
+	public TransitionWalker.ReachedState<ExecutedMongoShellProcess> start(Version version, Listener... listener) {
 		return transitions(version)
 			.walker()
-			.initState(StateID.of(ExecutedMongoShellProcess.class));
+			.initState(StateID.of(ExecutedMongoShellProcess.class), listener);
+	}
+
+	public CompletableFuture<TransitionWalker.ReachedState<ExecutedMongoShellProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongoShell instance() {
@@ -56,6 +56,9 @@ public abstract class MongoToolsProcessArguments<T extends MongoToolsArguments>
 	public State<ProcessArguments> result(StateLookup lookup) {
 		T arguments = lookup.of(arguments());
 		ServerAddress serverAddress = lookup.of(serverAddress());
+		if (serverAddress.getUnixSocket().isPresent()) {
+			throw new IllegalArgumentException("tools connect with host and port, but server listens only on " + serverAddress.getUnixSocket().get());
+		}
 
 		List<String> commandLine = arguments.asArguments(serverAddress);
 		return State.of(ProcessArguments.of(commandLine));
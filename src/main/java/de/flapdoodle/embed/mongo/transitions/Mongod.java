@@ -22,17 +22,21 @@ package de.flapdoodle.embed.mongo.transitions;
 
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.PortAllocator;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.mongo.types.DatabaseDir;
 import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.io.directories.TempDir;
 import de.flapdoodle.embed.process.transitions.Directories;
+import de.flapdoodle.embed.process.types.ProcessWorkingDir;
 import de.flapdoodle.reverse.*;
 import de.flapdoodle.reverse.transitions.Derive;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Value.Immutable
 public class Mongod implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
@@ -44,7 +48,24 @@ public class Mongod implements WorkspaceDefaults, VersionAndPlatform, ProcessDef
 
 	@Value.Default
 	public Transition<Net> net() {
-		return Start.to(Net.class).providedBy(Net::defaults);
+		return defaultNet();
+	}
+
+	/**
+	 * {@link Net#defaults()}, the port reservation is released on tear down
+	 */
+	public static Transition<Net> defaultNet() {
+		return Start.to(Net.class)
+			.with(() -> State.of(Net.defaults(), net -> PortAllocator.instance().release(net.getPort())));
+	}
+
+	/**
+	 * mongod listens on a unix socket in the process working dir, there is no tcp listener
+	 */
+	public static Transition<Net> unixSocketNet() {
+		return Derive.given(ProcessWorkingDir.class).state(Net.class)
+			.deriveBy(dir -> Net.unixSocket(dir.value().resolve("mongod.sock")))
+			.withTransitionLabel("unix socket in working dir");
 	}
 
 	@Value.Default
@@ -61,7 +82,8 @@ public class Mongod implements WorkspaceDefaults, VersionAndPlatform, ProcessDef
 		return MongodProcessArguments.withDefaults();
 	}
 
-	private MongodStarter mongodStarter() {
+	@Value.Default
+	public MongodStarter mongodStarter() {
 		return MongodStarter.withDefaults();
 	}
 
@@ -87,16 +109,21 @@ public class Mongod implements WorkspaceDefaults, VersionAndPlatform, ProcessDef
 
 	@Value.Auxiliary
 	public TransitionWalker.ReachedState<RunningMongodProcess> start(Version version, Listener... listener) {
-		return transitions(version)
+		return ShutdownCoordinator.instance().closeOnShutdown(transitions(version)
 			.walker()
-			.initState(StateID.of(RunningMongodProcess.class), listener);
+			.initState(StateID.of(RunningMongodProcess.class), listener));
 	}
 
 	@Value.Auxiliary
 	public TransitionWalker.ReachedState<RunningMongodProcess> start(Version version, Collection<Listener> listener) {
-		return transitions(version)
+		return ShutdownCoordinator.instance().closeOnShutdown(transitions(version)
 			.walker()
-			.initState(StateID.of(RunningMongodProcess.class), listener);
+			.initState(StateID.of(RunningMongodProcess.class), listener));
+	}
+
+	@Value.Auxiliary
+	public CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongod instance() {
@@ -20,14 +20,24 @@
  */
 package de.flapdoodle.embed.mongo.transitions;
 
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
 import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.types.RunningProcessFactory;
 import de.flapdoodle.os.Platform;
 import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
 import de.flapdoodle.reverse.naming.HasLabel;
 import org.immutables.value.Value;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 @Value.Immutable                  
 public abstract class MongodStarter extends MongoServerStarter<RunningMongodProcess> implements HasLabel {
 
@@ -43,9 +53,46 @@ public abstract class MongodStarter extends MongoServerStarter<RunningMongodProc
 		return StateID.of(RunningMongodProcess.class);
 	}
 
+	@Value.Default
+	public StateID<MongodArguments> mongodArguments() {
+		return StateID.of(MongodArguments.class);
+	}
+
+	@Value.Default
+	public StateID<DatabaseDir> databaseDir() {
+		return StateID.of(DatabaseDir.class);
+	}
+
+	@Override
+	public Set<StateID<?>> sources() {
+		Set<StateID<?>> sources = new LinkedHashSet<>(super.sources());
+		sources.add(mongodArguments());
+		sources.add(databaseDir());
+		return sources;
+	}
+
+	@Override
+	protected Optional<List<String>> argumentsWith(StateLookup lookup, Net net) {
+		Version version = lookup.of(version());
+		return version instanceof IFeatureAwareVersion
+			? Optional.of(lookup.of(mongodArguments()).asArguments(lookup.of(platform()), (IFeatureAwareVersion) version, net, lookup.of(databaseDir())))
+			: Optional.empty();
+	}
+
+	@Override
+	protected ShutdownCoordinator.Role shutdownRole(StateLookup lookup) {
+		MongodArguments arguments = lookup.of(mongodArguments());
+		if (arguments.isConfigServer()) {
+			return ShutdownCoordinator.Role.CONFIG_SERVER;
+		}
+		return arguments.isShardServer()
+			? ShutdownCoordinator.Role.SHARD
+			: ShutdownCoordinator.Role.SERVER;
+	}
+
 	@Override
-	protected RunningProcessFactory<RunningMongodProcess> factory(long startupTimeout, SupportConfig supportConfig, Platform platform, Net net) {
-		return RunningMongodProcess.factory(startupTimeout, supportConfig, platform, net);
+	protected RunningProcessFactory<RunningMongodProcess> factory(long startupTimeout, Optional<Version> version, SupportConfig supportConfig, Platform platform, Net net) {
+		return RunningMongoProcess.factory(RunningMongodProcess::new, startupTimeout, readinessProbe(), outputTail(), version, supportConfig, platform, net);
 	}
 	
 	public static ImmutableMongodStarter.Builder builder() {
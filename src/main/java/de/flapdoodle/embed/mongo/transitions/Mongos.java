@@ -24,12 +24,16 @@ import de.flapdoodle.embed.mongo.commands.MongosArguments;
 import de.flapdoodle.embed.mongo.config.Net;
 import de.flapdoodle.embed.mongo.packageresolver.Command;
 import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.Transitions;
 import de.flapdoodle.reverse.transitions.Start;
 import org.immutables.value.Value;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Value.Immutable
 public class Mongos implements WorkspaceDefaults, VersionAndPlatform, ProcessDefaults, CommandName, ExtractFileSet {
 	public Transitions transitions(de.flapdoodle.embed.process.distribution.Version version) {
@@ -41,7 +45,7 @@ public class Mongos implements WorkspaceDefaults, VersionAndPlatform, ProcessDef
 			.addAll(
 				Start.to(Command.class).initializedWith(Command.MongoS).withTransitionLabel("provide Command"),
 				Start.to(de.flapdoodle.embed.process.distribution.Version.class).initializedWith(version),
-				Start.to(Net.class).providedBy(Net::defaults),
+				Mongod.defaultNet(),
 
 				mongosArguments(),
 				MongosProcessArguments.withDefaults(),
@@ -54,9 +58,17 @@ public class Mongos implements WorkspaceDefaults, VersionAndPlatform, ProcessDef
 	}
 
 	public TransitionWalker.ReachedState<RunningMongosProcess> start(Version version) {
-		return transitions(version)
+		return start(version, new Listener[0]);
+	}
+
+	public TransitionWalker.ReachedState<RunningMongosProcess> start(Version version, Listener... listener) {
+		return ShutdownCoordinator.instance().closeOnShutdown(transitions(version)
 			.walker()
-			.initState(StateID.of(RunningMongosProcess.class));
+			.initState(StateID.of(RunningMongosProcess.class), listener));
+	}
+
+	public CompletableFuture<TransitionWalker.ReachedState<RunningMongosProcess>> startAsync(Version version, Executor executor, Listener... listener) {
+		return AsyncStart.start(() -> start(version, listener), executor);
 	}
 
 	public static ImmutableMongos instance() {
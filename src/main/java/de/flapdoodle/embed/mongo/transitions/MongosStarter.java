@@ -20,14 +20,23 @@
  */
 package de.flapdoodle.embed.mongo.transitions;
 
+import de.flapdoodle.embed.mongo.commands.MongosArguments;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.types.RunningProcessFactory;
 import de.flapdoodle.os.Platform;
 import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
 import de.flapdoodle.reverse.naming.HasLabel;
 import org.immutables.value.Value;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 @Value.Immutable
 public abstract class MongosStarter extends MongoServerStarter<RunningMongosProcess> implements HasLabel {
 
@@ -43,9 +52,34 @@ public abstract class MongosStarter extends MongoServerStarter<RunningMongosProc
 		return StateID.of(RunningMongosProcess.class);
 	}
 
+	@Value.Default
+	public StateID<MongosArguments> mongosArguments() {
+		return StateID.of(MongosArguments.class);
+	}
+
+	@Override
+	public Set<StateID<?>> sources() {
+		Set<StateID<?>> sources = new LinkedHashSet<>(super.sources());
+		sources.add(mongosArguments());
+		return sources;
+	}
+
+	@Override
+	protected Optional<List<String>> argumentsWith(StateLookup lookup, Net net) {
+		Version version = lookup.of(version());
+		return version instanceof IFeatureAwareVersion
+			? Optional.of(lookup.of(mongosArguments()).asArguments(lookup.of(platform()), (IFeatureAwareVersion) version, net))
+			: Optional.empty();
+	}
+
+	@Override
+	protected ShutdownCoordinator.Role shutdownRole(StateLookup lookup) {
+		return ShutdownCoordinator.Role.ROUTER;
+	}
+
 	@Override
-	protected RunningProcessFactory<RunningMongosProcess> factory(long startupTimeout, SupportConfig supportConfig, Platform platform, Net net) {
-		return RunningMongosProcess.factory(startupTimeout,supportConfig,platform,net);
+	protected RunningProcessFactory<RunningMongosProcess> factory(long startupTimeout, Optional<Version> version, SupportConfig supportConfig, Platform platform, Net net) {
+		return RunningMongoProcess.factory(RunningMongosProcess::new, startupTimeout, readinessProbe(), outputTail(), version, supportConfig, platform, net);
 	}
 
 	public static ImmutableMongosStarter.Builder builder() {
@@ -22,8 +22,16 @@ package de.flapdoodle.embed.mongo.transitions;
 
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.OutputTail;
+import de.flapdoodle.embed.mongo.config.PortAllocator;
+import de.flapdoodle.embed.mongo.config.ReadinessProbe;
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.ServerFeature;
 import de.flapdoodle.embed.mongo.runtime.Mongod;
+import de.flapdoodle.embed.mongo.runtime.ProcessSignals;
 import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.io.*;
 import de.flapdoodle.embed.process.runtime.ProcessControl;
 import de.flapdoodle.embed.process.runtime.Processes;
@@ -36,13 +44,22 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 public abstract class RunningMongoProcess extends RunningProcessImpl {
 
 	private static Logger LOGGER= LoggerFactory.getLogger(RunningMongodProcess.class);
 
+	private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+	private static final long FAST_SHUTDOWN_TIMEOUT_MS = 500;
+	private static final Duration SIGNAL_TIMEOUT = Duration.ofSeconds(5);
+
 	private final String commandName;
 	private final SupportConfig supportConfig;
 	private final Platform platform;
@@ -50,8 +67,15 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 	private final int mongoProcessId;
 	private final InetAddress serverAddress;
 	private final int port;
+	private final Optional<Path> unixSocket;
+	private final Net net;
+	private final Optional<Version> version;
 
 	private boolean shutDownCommandAlreadyExecuted=false;
+	private Integer exitCode = null;
+	private volatile int portConflictRetries = 0;
+	private volatile TeardownPolicy teardownPolicy = TeardownPolicy.GRACEFUL;
+	private final List<Runnable> stoppingListeners = new CopyOnWriteArrayList<>();
 
 	protected RunningMongoProcess(
 		String commandName,
@@ -64,6 +88,22 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 		Net net,
 		StreamProcessor commandOutput,
 		int mongoProcessId
+	) {
+		this(commandName, process, pidFile, timeout, onStop, supportConfig, platform, net, commandOutput, mongoProcessId, Optional.empty());
+	}
+
+	protected RunningMongoProcess(
+		String commandName,
+		ProcessControl process,
+		Path pidFile,
+		long timeout,
+		Runnable onStop,
+		SupportConfig supportConfig,
+		Platform platform,
+		Net net,
+		StreamProcessor commandOutput,
+		int mongoProcessId,
+		Optional<Version> version
 	) {
 		super(process, pidFile, timeout, onStop);
 		this.commandName = commandName;
@@ -73,44 +113,184 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 		this.mongoProcessId = mongoProcessId;
 		this.serverAddress = Try.get(net::getServerAddress);
 		this.port = net.getPort();
+		this.unixSocket = net.getUnixSocket();
+		this.net = net;
+		this.version = version;
+	}
+
+	/**
+	 * called before the process is stopped, or immediately if the process is already stopped
+	 */
+	public void whenStopping(Runnable listener) {
+		synchronized (this) {
+			if (exitCode == null) {
+				stoppingListeners.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	public String commandName() {
+		return commandName;
+	}
+
+	/**
+	 * number of start attempts which failed because the port was already in use
+	 */
+	public int portConflictRetries() {
+		return portConflictRetries;
+	}
+
+	void portConflictRetries(int retries) {
+		this.portConflictRetries = retries;
+	}
+
+	/**
+	 * policy this process is stopped with, stopping listeners can use it to skip a graceful shutdown
+	 */
+	public TeardownPolicy teardownPolicy() {
+		return teardownPolicy;
+	}
+
+	void teardownPolicy(TeardownPolicy teardownPolicy) {
+		this.teardownPolicy = teardownPolicy;
+	}
+
+	static boolean isPortConflict(RuntimeException failure) {
+		return failure.getMessage() != null && failure.getMessage().contains("Address already in use");
+	}
+
+	/**
+	 * the net this process listens on, the port differs from the Net state
+	 * if the start was retried after a port conflict
+	 */
+	public Net getNet() {
+		return net;
 	}
 
 	public ServerAddress getServerAddress() {
-		return ServerAddress.of(serverAddress, port);
+		ServerAddress address = ServerAddress.of(serverAddress, port);
+		return unixSocket.isPresent()
+			? ServerAddress.builder().from(address).unixSocket(unixSocket.get()).build()
+			: address;
 	}
 
 	@Override
 	public int stop() {
-		try {
-			stopInternal();
-		} finally {
-			return super.stop();
+		return stop(TeardownPolicy.GRACEFUL);
+	}
+
+	/**
+	 * stops the process only once, later calls return the exit code of the first call
+	 */
+	public synchronized int stop(TeardownPolicy teardownPolicy) {
+		if (exitCode == null) {
+			this.teardownPolicy = teardownPolicy;
+			stoppingListeners.forEach(listener -> {
+				try {
+					listener.run();
+				} catch (RuntimeException rx) {
+					LOGGER.warn("stopping listener failed", rx);
+				}
+			});
+			try {
+				stopInternal(teardownPolicy);
+			} catch (RuntimeException rx) {
+				LOGGER.warn("could not stop "+commandName, rx);
+			} finally {
+				exitCode = super.stop();
+				ShutdownCoordinator.instance().unregister(this);
+			}
+		}
+		return exitCode;
+	}
+
+	/**
+	 * kills the process without waiting for a running {@link #stop(TeardownPolicy)} call,
+	 * which then finishes as soon as it notices that the process is gone
+	 */
+	void kill() {
+		if (isAlive()) {
+			LOGGER.warn("kill "+commandName);
+			if (!sendKillSignal() && !tryKillToProcess()) {
+				LOGGER.warn("could not kill "+commandName);
+			}
 		}
 	}
 
-	//	@Override
-	private void stopInternal() {
+	private void stopInternal(TeardownPolicy teardownPolicy) {
 		if (isAlive()) {
-			LOGGER.debug("try to stop "+commandName);
-			if (!shutDownCommandAlreadyExecuted && !sendStopToMongoInstance()) {
+			LOGGER.debug("try to stop "+commandName+" ("+teardownPolicy+")");
+			if (teardownPolicy == TeardownPolicy.KILL) {
+				if (!sendKillSignal() && !tryKillToProcess()) {
+					LOGGER.warn("could not kill "+commandName+", try one last thing");
+				}
+				return;
+			}
+
+			long shutdownTimeout = teardownPolicy == TeardownPolicy.FAST_GRACEFUL
+				? FAST_SHUTDOWN_TIMEOUT_MS
+				: SHUTDOWN_TIMEOUT_MS;
+
+			boolean shutdownSent = shutDownCommandAlreadyExecuted || sendStopToMongoInstance();
+			if (shutdownSent && waitForExit(shutdownTimeout)) {
+				return;
+			}
+			if (shutdownSent) {
+				LOGGER.warn(commandName+" still alive "+shutdownTimeout+"ms after shutdown command, try next");
+			} else {
 				LOGGER.warn("could not stop "+commandName+" with db command, try next");
-				if (!sendKillToProcess()) {
+			}
+			if ((teardownPolicy == TeardownPolicy.GRACEFUL && sendTermSignal()) || sendKillSignal()) {
+				return;
+			}
+			if (!sendKillToProcess()) {
+				LOGGER.warn("could not stop "+commandName+", try next");
+				if (!sendTermToProcess()) {
 					LOGGER.warn("could not stop "+commandName+", try next");
-					if (!sendTermToProcess()) {
-						LOGGER.warn("could not stop "+commandName+", try next");
-						if (!tryKillToProcess()) {
-							LOGGER.warn("could not stop "+commandName+" the second time, try one last thing");
-						}
+					if (!tryKillToProcess()) {
+						LOGGER.warn("could not stop "+commandName+" the second time, try one last thing");
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * polls until the process is gone, starting with short intervals because
+	 * most processes exit within a few milliseconds after the shutdown command
+	 */
+	private boolean waitForExit(long timeoutMs) {
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		long interval = 1;
+		while (isAlive()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			long sleep = Math.min(interval, remaining);
+			Try.run(() -> Thread.sleep(sleep));
+			interval = Math.min(interval * 2, 50);
+		}
+		return true;
+	}
+
 	private long getProcessId() {
 		return mongoProcessId;
 	}
 
+	/**
+	 * signal is sent from within the jvm if possible, so no kill command must be started
+	 */
+	protected boolean sendTermSignal() {
+		return ProcessSignals.term(getProcessId(), SIGNAL_TIMEOUT);
+	}
+
+	protected boolean sendKillSignal() {
+		return ProcessSignals.kill(getProcessId(), SIGNAL_TIMEOUT);
+	}
+
 	protected boolean sendKillToProcess() {
 		return getProcessId() > 0 && Processes.killProcess(supportConfig, platform,
 			StreamToLineProcessor.wrap(commandOutput), getProcessId());
@@ -126,9 +306,27 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 			StreamToLineProcessor.wrap(commandOutput), getProcessId());
 	}
 
+	/**
+	 * sends one shutdown command matching the wire protocol of the version,
+	 * if OP_MSG is not known to be supported, the legacy command is sent first
+	 */
 	protected final boolean sendStopToMongoInstance() {
-		return Mongod.sendShutdownLegacy(serverAddress, port)
-			|| Mongod.sendShutdown(serverAddress, port);
+		// without tcp listener the command is send over the unix socket, if this is not supported signals are used
+		BooleanSupplier shutdown = unixSocket.isPresent()
+			? () -> Mongod.sendShutdown(unixSocket.get())
+			: () -> Mongod.sendShutdown(serverAddress, port);
+		BooleanSupplier shutdownLegacy = unixSocket.isPresent()
+			? () -> Mongod.sendShutdownLegacy(unixSocket.get())
+			: () -> Mongod.sendShutdownLegacy(serverAddress, port);
+
+		boolean opMsg = version.filter(IFeatureAwareVersion.class::isInstance)
+			.map(it -> ((IFeatureAwareVersion) it).enabled(ServerFeature.OP_MSG))
+			.orElse(false);
+		if (opMsg) {
+			return shutdown.getAsBoolean();
+		}
+		return shutdownLegacy.getAsBoolean()
+			|| shutdown.getAsBoolean();
 	}
 
 	public void shutDownCommandAlreadyExecuted() {
@@ -136,16 +334,43 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 	}
 
 	interface InstanceFactory<T extends RunningMongoProcess> {
-		T create(ProcessControl process, Path pidFile, long timeout, Runnable closeAllOutputs, SupportConfig supportConfig, Platform platform, Net net, StreamProcessor commands, int pid);
+		T create(ProcessControl process, Path pidFile, long timeout, Runnable closeAllOutputs, SupportConfig supportConfig, Platform platform, Net net, StreamProcessor commands, int pid,
+			Optional<Version> version);
 	}
 
 	static <T extends RunningMongoProcess> RunningProcessFactory<T> factory(InstanceFactory<T> instanceFactory, long startupTimeout, SupportConfig supportConfig, Platform platform, Net net) {
+		return factory(instanceFactory, startupTimeout, ReadinessProbe.defaults(), supportConfig, platform, net);
+	}
+
+	static <T extends RunningMongoProcess> RunningProcessFactory<T> factory(InstanceFactory<T> instanceFactory, long startupTimeout, ReadinessProbe readinessProbe,
+		SupportConfig supportConfig, Platform platform, Net net) {
+		return factory(instanceFactory, startupTimeout, readinessProbe, RunningMongoProcess::errorMessageAwareLogWatch, Optional.empty(), supportConfig, platform, net);
+	}
+
+	static <T extends RunningMongoProcess> RunningProcessFactory<T> factory(InstanceFactory<T> instanceFactory, long startupTimeout, ReadinessProbe readinessProbe,
+		OutputTail outputTail, Version version, SupportConfig supportConfig, Platform platform, Net net) {
+		return factory(instanceFactory, startupTimeout, readinessProbe, outputTail, Optional.of(version), supportConfig, platform, net);
+	}
+
+	static <T extends RunningMongoProcess> RunningProcessFactory<T> factory(InstanceFactory<T> instanceFactory, long startupTimeout, ReadinessProbe readinessProbe,
+		OutputTail outputTail, Optional<Version> version, SupportConfig supportConfig, Platform platform, Net net) {
+		Supplier<StartupLogWatch> logWatchFactory = version.isPresent()
+			? () -> errorMessageAwareLogWatch(version.get(), outputTail)
+			: RunningMongoProcess::errorMessageAwareLogWatch;
+		return factory(instanceFactory, startupTimeout, readinessProbe, logWatchFactory, version, supportConfig, platform, net);
+	}
+
+	private static <T extends RunningMongoProcess> RunningProcessFactory<T> factory(InstanceFactory<T> instanceFactory, long startupTimeout, ReadinessProbe readinessProbe,
+		Supplier<StartupLogWatch> logWatchFactory, Optional<Version> version, SupportConfig supportConfig, Platform platform, Net net) {
+		// if the port is already in use, the probe could be answered by another server
+		ReadinessProbe probe = net.getUnixSocket().isPresent() || PortAllocator.isFree(Try.get(net::getServerAddress), net.getPort())
+			? readinessProbe
+			: ReadinessProbe.disabled();
+
 		return (process, processOutput, pidFile, timeout) -> {
 
-//			LogWatchStreamProcessor logWatch = new LogWatchStreamProcessor(successMessage(), knownFailureMessages(),
-//				StreamToLineProcessor.wrap(processOutput.output()));
 			LOGGER.trace("setup logWatch");
-			SuccessMessageLineListener logWatch = errorMessageAwareLogWatch();
+			StartupLogWatch logWatch = logWatchFactory.get();
 
 			LOGGER.trace("connect io");
 			ReaderProcessor output = Processors.connect(process.getReader(), new ListeningStreamProcessor(StreamToLineProcessor.wrap(processOutput.output()), logWatch::inspect));
@@ -157,13 +382,15 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 			};
 
 			LOGGER.trace("waitForResult");
-			logWatch.waitForResult(startupTimeout);
-			LOGGER.trace("check if successMessageFound");
-			if (logWatch.successMessageFound()) {
+			boolean ready = waitUntilReady(logWatch, startupTimeout, probe, net, process::isAlive);
+			// the process is listening now or has failed, so the port must not be reserved any longer
+			PortAllocator.instance().release(net.getPort());
+
+			if (ready) {
 				LOGGER.trace("get processId");
-				int pid = Mongod.getMongodProcessId(logWatch.allLines(), -1);
+				int pid = logWatch.processId();
 				LOGGER.trace("return RunningMongodProcess");
-				return instanceFactory.create(process, pidFile, timeout, closeAllOutputs, supportConfig, platform, net, processOutput.commands(), pid);
+				return instanceFactory.create(process, pidFile, timeout, closeAllOutputs, supportConfig, platform, net, processOutput.commands(), pid, version);
 
 			} else {
 				String failureFound = logWatch.errorMessage().isPresent()
@@ -173,7 +400,7 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 					"Hmm.. no failure message.. \n" +
 					"...the cause must be somewhere in the process output\n" +
 					"----------------------\n" +
-					""+logWatch.allLines();
+					""+logWatch.outputTail();
 
 				return Try.<T, RuntimeException>supplier(() -> {
 						throw new RuntimeException("Could not start process: "+failureFound);
@@ -187,9 +414,56 @@ public abstract class RunningMongoProcess extends RunningProcessImpl {
 		};
 	}
 
+	/**
+	 * waits for the success message in the log output and probes the server port in between,
+	 * a probe answer (isMaster with ok: 1) is only accepted while the started process is alive,
+	 * the probe must be disabled if another process already listens on the port
+	 */
+	private static boolean waitUntilReady(StartupLogWatch logWatch, long startupTimeout, ReadinessProbe readinessProbe, Net net,
+		BooleanSupplier processIsAlive) {
+		// the probe needs a tcp listener
+		if (!readinessProbe.enabled() || net.getUnixSocket().isPresent()) {
+			logWatch.waitForResult(startupTimeout);
+			return logWatch.successMessageFound();
+		}
+
+		InetAddress serverAddress = Try.get(net::getServerAddress);
+		long started = System.currentTimeMillis();
+		long deadline = started + startupTimeout;
+		long maxInterval = readinessProbe.maxInterval().toMillis();
+		long interval = Math.min(readinessProbe.initialInterval().toMillis(), maxInterval);
+
+		long remaining;
+		while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+			logWatch.waitForResult(Math.min(interval, remaining));
+			if (logWatch.successMessageFound() || logWatch.errorMessage().isPresent()) {
+				return logWatch.successMessageFound();
+			}
+			if (Mongod.isMasterReplied(serverAddress, net.getPort(), (int) Math.max(interval, 1)) && processIsAlive.getAsBoolean()
+				&& !logWatch.errorMessage().isPresent()) {
+				LOGGER.debug("server answered readiness probe after {} ms", System.currentTimeMillis() - started);
+				return true;
+			}
+			interval = Math.min(interval * 2, maxInterval);
+		}
+		return logWatch.successMessageFound();
+	}
+
 	// VisibleForTesting
-	static SuccessMessageLineListener errorMessageAwareLogWatch() {
-		return SuccessMessageLineListener.of(successMessage(), knownFailureMessages(), "error");
+	static StartupLogWatch errorMessageAwareLogWatch() {
+		return StartupLogWatch.structured(successMessage(), knownFailureMessages(), OutputTail.defaults());
+	}
+
+	// VisibleForTesting
+	static StartupLogWatch errorMessageAwareLogWatch(Version version) {
+		return errorMessageAwareLogWatch(version, OutputTail.defaults());
+	}
+
+	static StartupLogWatch errorMessageAwareLogWatch(Version version, OutputTail outputTail) {
+		// plain text matching also finds the success message in structured log lines
+		return version instanceof IFeatureAwareVersion && ((IFeatureAwareVersion) version).enabled(ServerFeature.STRUCTURED_LOG)
+			? StartupLogWatch.structured(successMessage(), knownFailureMessages(), outputTail)
+			: StartupLogWatch.plain(successMessage(), knownFailureMessages(), outputTail);
 	}
 
 	private static List<String> successMessage() {
@@ -21,13 +21,17 @@
 package de.flapdoodle.embed.mongo.transitions;
 
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.OutputTail;
+import de.flapdoodle.embed.mongo.config.ReadinessProbe;
 import de.flapdoodle.embed.process.config.SupportConfig;
+import de.flapdoodle.embed.process.distribution.Version;
 import de.flapdoodle.embed.process.io.StreamProcessor;
 import de.flapdoodle.embed.process.runtime.ProcessControl;
 import de.flapdoodle.embed.process.types.RunningProcessFactory;
 import de.flapdoodle.os.Platform;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
 public class RunningMongodProcess extends RunningMongoProcess {
 
@@ -46,7 +50,31 @@ public class RunningMongodProcess extends RunningMongoProcess {
 		super("mongod", process, pidFile, timeout, onStop, supportConfig, platform, net, commandOutput, mongodProcessId);
 	}
 
+	public RunningMongodProcess(
+		ProcessControl process,
+		Path pidFile,
+		long timeout,
+		Runnable onStop,
+		SupportConfig supportConfig,
+		Platform platform,
+		Net net,
+		StreamProcessor commandOutput,
+		int mongodProcessId,
+		Optional<Version> version
+	) {
+		super("mongod", process, pidFile, timeout, onStop, supportConfig, platform, net, commandOutput, mongodProcessId, version);
+	}
+
 	public static RunningProcessFactory<RunningMongodProcess> factory(long startupTimeout, SupportConfig supportConfig, Platform platform, Net net) {
 		return RunningMongoProcess.factory(RunningMongodProcess::new, startupTimeout, supportConfig, platform, net);
 	}
+
+	public static RunningProcessFactory<RunningMongodProcess> factory(long startupTimeout, ReadinessProbe readinessProbe, SupportConfig supportConfig, Platform platform, Net net) {
+		return RunningMongoProcess.factory(RunningMongodProcess::new, startupTimeout, readinessProbe, supportConfig, platform, net);
+	}
+
+	public static RunningProcessFactory<RunningMongodProcess> factory(long startupTimeout, ReadinessProbe readinessProbe, OutputTail outputTail, Version version, SupportConfig supportConfig,
+		Platform platform, Net net) {
+		return RunningMongoProcess.factory(RunningMongodProcess::new, startupTimeout, readinessProbe, outputTail, version, supportConfig, platform, net);
+	}
 }
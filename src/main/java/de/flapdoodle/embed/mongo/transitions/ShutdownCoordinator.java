@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * keeps track of all running processes and stops them concurrently, routers first, config servers last,
+ * a single shutdown hook stops all processes still running when the jvm exits, if a process was started with
+ * {@link #closeOnShutdown(TransitionWalker.ReachedState)} the hook closes its reached state instead, so that all
+ * tear down steps are executed (e.g. a shutdown with credentials, deleting the database dir)
+ */
+public final class ShutdownCoordinator {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+	private static final Duration SHUTDOWN_HOOK_DEADLINE = Duration.ofSeconds(30);
+	private static final Duration KILL_TIMEOUT = Duration.ofSeconds(10);
+
+	private static final ShutdownCoordinator INSTANCE = new ShutdownCoordinator();
+
+	public enum Role {
+		ROUTER(0),
+		SERVER(1),
+		SHARD(1),
+		CONFIG_SERVER(2);
+
+		private final int stopOrder;
+
+		Role(int stopOrder) {
+			this.stopOrder = stopOrder;
+		}
+	}
+
+	@Value.Immutable
+	public interface Stopped {
+		String process();
+		Role role();
+		Duration duration();
+		boolean inTime();
+	}
+
+	private final ConcurrentMap<RunningMongoProcess, Registration> live = new ConcurrentHashMap<>();
+	private final AtomicBoolean shutdownHookInstalled = new AtomicBoolean();
+
+	private ShutdownCoordinator() {
+	}
+
+	public static ShutdownCoordinator instance() {
+		return INSTANCE;
+	}
+
+	void register(RunningMongoProcess process, Role role, TeardownPolicy teardownPolicy) {
+		live.put(process, new Registration(role, teardownPolicy));
+		if (shutdownHookInstalled.compareAndSet(false, true)) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> stopAllOnShutdown(SHUTDOWN_HOOK_DEADLINE), "mongo-shutdown-coordinator"));
+		}
+	}
+
+	/**
+	 * the shutdown hook closes this reached state instead of stopping the bare process
+	 */
+	public <T extends RunningMongoProcess> TransitionWalker.ReachedState<T> closeOnShutdown(TransitionWalker.ReachedState<T> reachedState) {
+		live.computeIfPresent(reachedState.current(), (process, registration) -> registration.closedBy(reachedState));
+		return reachedState;
+	}
+
+	void unregister(RunningMongoProcess process) {
+		live.remove(process);
+	}
+
+	public int liveProcesses() {
+		return live.size();
+	}
+
+	public List<Stopped> stopAll(Duration deadline) {
+		return stop(new ArrayList<>(live.keySet()), deadline);
+	}
+
+	/**
+	 * same as {@link #stopAll(Duration)}, but closes the reached state of a process if there is one
+	 */
+	List<Stopped> stopAllOnShutdown(Duration deadline) {
+		return stop(new ArrayList<>(live.keySet()), deadline, true);
+	}
+
+	/**
+	 * stops all processes of one role concurrently, roles are stopped one after another
+	 * (routers, then shards and servers, then config servers), all within the same deadline,
+	 * processes which are still running after the deadline are killed before the next role is stopped
+	 */
+	public List<Stopped> stop(Collection<? extends RunningMongoProcess> processes, Duration deadline) {
+		return stop(processes, deadline, false);
+	}
+
+	private List<Stopped> stop(Collection<? extends RunningMongoProcess> processes, Duration deadline, boolean closeReachedStates) {
+		long deadlineNanos = System.nanoTime() + deadline.toNanos();
+
+		Map<Integer, List<RunningMongoProcess>> byStopOrder = new TreeMap<>(processes.stream()
+			.collect(Collectors.groupingBy(it -> roleOf(it).stopOrder)));
+
+		List<Stopped> result = new ArrayList<>();
+		if (byStopOrder.isEmpty()) {
+			return result;
+		}
+
+		ExecutorService executor = Executors.newCachedThreadPool(daemonThreads());
+		try {
+			for (List<RunningMongoProcess> group : byStopOrder.values()) {
+				List<StopTask> tasks = group.stream()
+					.map(process -> new StopTask(process, roleOf(process), stopAction(process, closeReachedStates), executor))
+					.collect(Collectors.toList());
+
+				for (StopTask task : tasks) {
+					result.add(task.await(deadlineNanos));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		result.forEach(stopped -> LOGGER.info("{} ({}) stopped after {}{}", stopped.process(), stopped.role(), stopped.duration(),
+			stopped.inTime() ? "" : ", deadline exceeded"));
+		return result;
+	}
+
+	private Role roleOf(RunningMongoProcess process) {
+		Registration registration = live.get(process);
+		return registration != null ? registration.role : Role.SERVER;
+	}
+
+	private TeardownPolicy teardownPolicyOf(RunningMongoProcess process) {
+		Registration registration = live.get(process);
+		return registration != null ? registration.teardownPolicy : TeardownPolicy.GRACEFUL;
+	}
+
+	private Runnable stopAction(RunningMongoProcess process, boolean closeReachedState) {
+		Registration registration = live.get(process);
+		if (closeReachedState && registration != null && registration.reachedState != null) {
+			return registration.reachedState::close;
+		}
+		TeardownPolicy teardownPolicy = teardownPolicyOf(process);
+		return () -> process.stop(teardownPolicy);
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "mongo-stop-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private final class StopTask {
+		private final RunningMongoProcess process;
+		private final Role role;
+		private final long started = System.nanoTime();
+		private volatile long finished = 0;
+		private final Future<?> stopping;
+
+		private StopTask(RunningMongoProcess process, Role role, Runnable stop, ExecutorService executor) {
+			this.process = process;
+			this.role = role;
+			this.stopping = executor.submit(() -> {
+				try {
+					stop.run();
+				}
+				finally {
+					finished = System.nanoTime();
+				}
+			});
+		}
+
+		private Stopped await(long deadlineNanos) {
+			boolean inTime = waitFor(Math.max(0, deadlineNanos - System.nanoTime()));
+			if (!inTime) {
+				// the next role must not be stopped while this process is still running
+				process.kill();
+				if (!waitFor(KILL_TIMEOUT.toNanos())) {
+					LOGGER.warn("{} still running {} after kill", process.getServerAddress(), KILL_TIMEOUT);
+				}
+			}
+			return ImmutableStopped.builder()
+				.process(process.commandName() + "@" + process.getServerAddress())
+				.role(role)
+				.duration(Duration.ofNanos((stopping.isDone() ? finished : System.nanoTime()) - started))
+				.inTime(inTime)
+				.build();
+		}
+
+		private boolean waitFor(long timeoutNanos) {
+			try {
+				stopping.get(timeoutNanos, TimeUnit.NANOSECONDS);
+				return true;
+			}
+			catch (TimeoutException tx) {
+				return false;
+			}
+			catch (ExecutionException ex) {
+				LOGGER.warn("stop {} failed", process.getServerAddress(), ex.getCause());
+				return true;
+			}
+			catch (InterruptedException ix) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	private static final class Registration {
+		private final Role role;
+		private final TeardownPolicy teardownPolicy;
+		private final TransitionWalker.ReachedState<?> reachedState;
+
+		private Registration(Role role, TeardownPolicy teardownPolicy) {
+			this(role, teardownPolicy, null);
+		}
+
+		private Registration(Role role, TeardownPolicy teardownPolicy, TransitionWalker.ReachedState<?> reachedState) {
+			this.role = role;
+			this.teardownPolicy = teardownPolicy;
+			this.reachedState = reachedState;
+		}
+
+		private Registration closedBy(TransitionWalker.ReachedState<?> reachedState) {
+			return new Registration(role, teardownPolicy, reachedState);
+		}
+	}
+}
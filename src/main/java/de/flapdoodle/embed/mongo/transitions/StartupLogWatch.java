@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.config.OutputTail;
+import de.flapdoodle.embed.mongo.runtime.Mongod;
+import de.flapdoodle.embed.mongo.runtime.StructuredLogLine;
+import de.flapdoodle.embed.mongo.util.LineRingBuffer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * watches the process output until the server is ready or a failure shows up
+ * <p>
+ * structured log lines (since 4.4) are matched by log id, plain text lines by regular expressions,
+ * only the tail of the output is kept for failure messages
+ */
+final class StartupLogWatch {
+
+	// "Waiting for connections"
+	static final long WAITING_FOR_CONNECTIONS = 23016;
+	// "MongoDB starting"
+	static final long MONGODB_STARTING = 4615611;
+
+	private final boolean structuredLog;
+	private final List<String> successMessages;
+	private final List<Pattern> failurePatterns;
+
+	private final LineRingBuffer outputTail;
+	private boolean successMessageFound = false;
+	private String errorMessage = null;
+	private int processId = -1;
+
+	private StartupLogWatch(boolean structuredLog, List<String> successMessages, List<String> failureMessages, OutputTail outputTail) {
+		this.structuredLog = structuredLog;
+		this.outputTail = new LineRingBuffer(outputTail.maxLines(), outputTail.maxCharacters());
+		this.successMessages = successMessages;
+		this.failurePatterns = failureMessages.stream()
+			.map(Pattern::compile)
+			.collect(Collectors.toList());
+	}
+
+	public synchronized void inspect(CharSequence line) {
+		String asString = line.toString();
+		outputTail.add(asString);
+		if (successMessageFound || errorMessage != null) {
+			// nothing more to detect
+			return;
+		}
+
+		Optional<StructuredLogLine> structured = structuredLog
+			? StructuredLogLine.parse(asString)
+			: Optional.empty();
+
+		if (structured.isPresent()) {
+			inspect(structured.get(), asString);
+		} else {
+			inspectPlain(asString);
+		}
+
+		if (successMessageFound || errorMessage != null) {
+			notifyAll();
+		}
+	}
+
+	private void inspect(StructuredLogLine logLine, String line) {
+		if (logLine.id() == WAITING_FOR_CONNECTIONS) {
+			successMessageFound = true;
+		} else if (logLine.id() == MONGODB_STARTING) {
+			logLine.attrLong("pid").ifPresent(pid -> processId = (int) pid);
+		} else if (logLine.isError()) {
+			Optional<String> failure = failureOf(line);
+			if (failure.isPresent()) {
+				errorMessage = failure.get();
+			} else if (logLine.isFatal()) {
+				errorMessage = logLine.message();
+			}
+		}
+	}
+
+	private void inspectPlain(String line) {
+		for (String successMessage : successMessages) {
+			if (line.contains(successMessage)) {
+				successMessageFound = true;
+			}
+		}
+		if (processId == -1 && line.contains("pid=")) {
+			processId = Mongod.getMongodProcessId(line, -1);
+		}
+		failureOf(line).ifPresent(failure -> errorMessage = failure);
+	}
+
+	private Optional<String> failureOf(String line) {
+		for (Pattern pattern : failurePatterns) {
+			Matcher matcher = pattern.matcher(line);
+			if (matcher.find()) {
+				return Optional.of(matcher.group("error"));
+			}
+		}
+		return Optional.empty();
+	}
+
+	public synchronized void waitForResult(long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		long remaining = timeout;
+		try {
+			while (!successMessageFound && errorMessage == null && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+		catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public synchronized boolean successMessageFound() {
+		return successMessageFound;
+	}
+
+	public synchronized Optional<String> errorMessage() {
+		return Optional.ofNullable(errorMessage);
+	}
+
+	public synchronized int processId() {
+		return processId;
+	}
+
+	public String outputTail() {
+		return outputTail.asString();
+	}
+
+	static StartupLogWatch plain(List<String> successMessages, List<String> failureMessages, OutputTail outputTail) {
+		return new StartupLogWatch(false, successMessages, failureMessages, outputTail);
+	}
+
+	static StartupLogWatch structured(List<String> successMessages, List<String> failureMessages, OutputTail outputTail) {
+		return new StartupLogWatch(true, successMessages, failureMessages, outputTail);
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.archives.ImmutableExtractedFileSet;
+import de.flapdoodle.embed.process.config.DownloadConfig;
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.config.store.FileType;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.distribution.ArchiveType;
+import de.flapdoodle.embed.process.io.directories.TempDir;
+import de.flapdoodle.embed.process.io.progress.ProgressListener;
+import de.flapdoodle.embed.process.net.ProxyFactory;
+import de.flapdoodle.embed.process.net.UrlStreams;
+import de.flapdoodle.embed.process.store.DownloadCache;
+import de.flapdoodle.embed.process.store.ExtractedFileSetStore;
+import de.flapdoodle.embed.process.transitions.DownloadPackage;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.naming.HasLabel;
+import de.flapdoodle.types.Try;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * downloads and extracts a package in one pass: matching archive entries are extracted while
+ * the archive is downloaded, the archive is stored in the download cache afterwards
+ * <p>
+ * used instead of {@link ExtractFileSet#extractPackage()} if {@link ExtractFileSet#streamingExtract()} is enabled,
+ * holding the same download and extract locks
+ */
+@Value.Immutable
+public abstract class StreamingExtractPackage implements Transition<ExtractedFileSet>, HasLabel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StreamingExtractPackage.class);
+
+	@Override
+	@Value.Default
+	public String transitionLabel() {
+		return "Download and extract package";
+	}
+
+	/**
+	 * proxy, user agent and timeouts, same as {@link DownloadPackage#downloadConfig()}
+	 */
+	@Value.Default
+	public DownloadConfig downloadConfig() {
+		return DownloadConfig.defaults();
+	}
+
+	@Override
+	@Value.Default
+	public StateID<ExtractedFileSet> destination() {
+		return StateID.of(ExtractedFileSet.class);
+	}
+
+	@Value.Default
+	public StateID<Package> distPackage() {
+		return StateID.of(Package.class);
+	}
+
+	@Value.Default
+	public StateID<DownloadCache> downloadCache() {
+		return StateID.of(DownloadCache.class);
+	}
+
+	@Value.Default
+	public StateID<ExtractedFileSetStore> extractedFileSetStore() {
+		return StateID.of(ExtractedFileSetStore.class);
+	}
+
+	@Value.Default
+	public StateID<TempDir> tempDir() {
+		return StateID.of(TempDir.class);
+	}
+
+	@Value.Default
+	public StateID<ProgressListener> progressListener() {
+		return StateID.of(ProgressListener.class);
+	}
+
+	@Override
+	@Value.Auxiliary
+	public Set<StateID<?>> sources() {
+		return StateID.setOf(distPackage(), downloadCache(), extractedFileSetStore(), tempDir(), progressListener());
+	}
+
+	@Override
+	public State<ExtractedFileSet> result(StateLookup lookup) {
+		Package distPackage = lookup.of(distPackage());
+		DownloadCache downloadCache = lookup.of(downloadCache());
+		ExtractedFileSetStore extractedFileSetStore = lookup.of(extractedFileSetStore());
+		Path tempDir = lookup.of(tempDir()).value();
+		ProgressListener progressListener = lookup.of(progressListener());
+
+		return Try.supplier(() -> State.of(extractedFileSet(distPackage, downloadCache, extractedFileSetStore, tempDir, progressListener)))
+			.mapToUncheckedException(RuntimeException::new)
+			.get();
+	}
+
+	private ExtractedFileSet extractedFileSet(
+		Package distPackage,
+		DownloadCache downloadCache,
+		ExtractedFileSetStore extractedFileSetStore,
+		Path tempDir,
+		ProgressListener progressListener
+	) throws IOException {
+		URL url = new URL(distPackage.url());
+		ArchiveType archiveType = distPackage.archiveType();
+		FileSet fileSet = distPackage.fileSet();
+
+		Optional<Path> cachedArchive = downloadCache.archiveFor(url, archiveType);
+		if (cachedArchive.isPresent()) {
+			Optional<ExtractedFileSet> alreadyExtracted = extractedFileSetStore.extractedFileSet(cachedArchive.get(), fileSet);
+			if (alreadyExtracted.isPresent()) {
+				return alreadyExtracted.get();
+			}
+		}
+
+		Path workDir = Files.createTempDirectory(tempDir, "streaming-extract");
+		try {
+			Path extractDir = Files.createDirectories(workDir.resolve("extracted"));
+			Timing timing = new Timing();
+
+			Path archive;
+			ExtractedFileSet extracted;
+
+			if (cachedArchive.isPresent()) {
+				archive = cachedArchive.get();
+				try (InputStream input = new BufferedInputStream(Files.newInputStream(archive))) {
+					extracted = extract(input, archiveType, fileSet, extractDir, timing);
+				}
+			} else {
+				Path downloadedArchive = workDir.resolve("archive");
+				DownloadConfig downloadConfig = downloadConfig();
+				URLConnection connection = UrlStreams.urlConnectionOf(url, downloadConfig.getUserAgent(), downloadConfig.getTimeoutConfig(),
+					downloadConfig.proxyFactory().map(ProxyFactory::createProxy));
+				long length = connection.getContentLengthLong();
+
+				String label = "download and extract " + url;
+				progressListener.start(label);
+				try (OutputStream archiveCopy = new BufferedOutputStream(Files.newOutputStream(downloadedArchive));
+					 InputStream input = new TeeInputStream(new BufferedInputStream(connection.getInputStream()), archiveCopy,
+						 bytes -> progressListener.progress(label, length > 0 ? (int) (bytes * 100 / length) : -1))) {
+
+					extracted = extract(input, archiveType, fileSet, extractDir, timing);
+					drain(input);
+				}
+				progressListener.done(label);
+				archive = downloadCache.store(url, archiveType, downloadedArchive);
+			}
+
+			ExtractedFileSet stored = extractedFileSetStore.store(archive, fileSet, extracted);
+			timing.stored();
+
+			String message = "executable extracted after " + timing.timeToExecutableExtracted() + " ms, "
+				+ "file set stored after " + timing.timeToStored() + " ms";
+			progressListener.info(transitionLabel(), message);
+			LOGGER.info("{}: {}", url, message);
+
+			return stored;
+		}
+		finally {
+			deleteAll(workDir);
+		}
+	}
+
+	private static ExtractedFileSet extract(InputStream input, ArchiveType archiveType, FileSet fileSet, Path destination, Timing timing)
+		throws IOException {
+		ImmutableExtractedFileSet.Builder builder = ExtractedFileSet.builder(destination);
+		int missing = fileSet.entries().size();
+		boolean executableFound = false;
+
+		ArchiveInputStream archiveInput = archiveInputStream(input, archiveType);
+		ArchiveEntry entry;
+		while (missing > 0 && (entry = archiveInput.getNextEntry()) != null) {
+			if (entry.isDirectory()) {
+				continue;
+			}
+			for (FileSet.Entry fileSetEntry : fileSet.entries()) {
+				if (fileSetEntry.matchingPattern().matcher(entry.getName()).matches()) {
+					Path file = destination.resolve(fileSetEntry.destination());
+					Files.createDirectories(file.getParent());
+					Files.copy(archiveInput, file, StandardCopyOption.REPLACE_EXISTING);
+					missing--;
+
+					if (fileSetEntry.type() == FileType.Executable) {
+						if (!file.toFile().setExecutable(true)) {
+							LOGGER.warn("could not make {} executable", file);
+						}
+						builder.executable(file);
+						executableFound = true;
+						timing.executableExtracted();
+					} else {
+						builder.addLibraryFiles(file);
+					}
+					break;
+				}
+			}
+		}
+
+		if (!executableFound || missing > 0) {
+			throw new IllegalArgumentException("could not find all entries of " + fileSet + " in archive");
+		}
+		return builder.build();
+	}
+
+	private static ArchiveInputStream archiveInputStream(InputStream input, ArchiveType archiveType) throws IOException {
+		switch (archiveType) {
+			case TGZ:
+				return new TarArchiveInputStream(new GzipCompressorInputStream(input));
+			case TBZ2:
+				return new TarArchiveInputStream(new BZip2CompressorInputStream(input));
+			case ZIP:
+				return new ZipArchiveInputStream(input);
+			default:
+				throw new IllegalArgumentException("archive type not supported: " + archiveType);
+		}
+	}
+
+	private static void drain(InputStream input) throws IOException {
+		byte[] buffer = new byte[8192];
+		while (input.read(buffer) != -1) {
+			// read remaining bytes, so that the archive is complete
+		}
+	}
+
+	private static void deleteAll(Path dir) {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder())
+				.forEach(path -> Try.run(() -> Files.deleteIfExists(path)));
+		}
+		catch (IOException iox) {
+			LOGGER.warn("could not delete {}", dir, iox);
+		}
+	}
+
+	private static final class Timing {
+		private final long started = System.currentTimeMillis();
+		private long executableExtracted = -1;
+		private long stored = -1;
+
+		void executableExtracted() {
+			executableExtracted = System.currentTimeMillis();
+		}
+
+		// the executable can not be used before the file set is stored
+		void stored() {
+			stored = System.currentTimeMillis();
+		}
+
+		long timeToExecutableExtracted() {
+			return executableExtracted - started;
+		}
+
+		long timeToStored() {
+			return stored - started;
+		}
+	}
+
+	private static final class TeeInputStream extends FilterInputStream {
+		private final OutputStream copy;
+		private final LongConsumer onRead;
+		private long bytesRead = 0;
+
+		private TeeInputStream(InputStream source, OutputStream copy, LongConsumer onRead) {
+			super(source);
+			this.copy = copy;
+			this.onRead = onRead;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				copy.write(b);
+				bytesRead(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int count = super.read(buffer, offset, length);
+			if (count > 0) {
+				copy.write(buffer, offset, count);
+				bytesRead(count);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			int count = read(buffer, 0, buffer.length);
+			return Math.max(count, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void bytesRead(int count) {
+			long before = bytesRead;
+			bytesRead += count;
+			if (before / (1024 * 1024) != bytesRead / (1024 * 1024)) {
+				onRead.accept(bytesRead);
+			}
+		}
+	}
+
+	public static ImmutableStreamingExtractPackage.Builder builder() {
+		return ImmutableStreamingExtractPackage.builder();
+	}
+
+	public static ImmutableStreamingExtractPackage withDefaults() {
+		return builder().build();
+	}
+
+	/**
+	 * uses the download config of the replaced download transition
+	 */
+	public static ImmutableStreamingExtractPackage with(DownloadPackage downloadPackage) {
+		return builder()
+			.downloadConfig(downloadPackage.downloadConfig())
+			.build();
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * copies a directory into a snapshot directory, files are copied in parallel
+ * <p>
+ * in incremental mode files with the same size and modification time as in the previous snapshot are skipped
+ * and files or directories which are gone in the source are deleted, so that the snapshot matches the source afterwards
+ */
+@Value.Immutable
+public abstract class DirectorySnapshot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectorySnapshot.class);
+
+	/**
+	 * disabled by default if {@link #hardlinks()} is enabled, a linked file is always equal to its source
+	 */
+	@Value.Default
+	public boolean incremental() {
+		return !hardlinks();
+	}
+
+	@Value.Default
+	public int parallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * use copy on write clones (reflinks) for the first snapshot if the file system supports them
+	 */
+	@Value.Default
+	public boolean reflinks() {
+		return true;
+	}
+
+	/**
+	 * hardlink files instead of copying them, only safe if the source files are not modified afterwards
+	 * (e.g. database files on tear down), mongod modifies its data files in place
+	 */
+	@Value.Default
+	public boolean hardlinks() {
+		return false;
+	}
+
+	@Value.Check
+	protected void check() {
+		if (incremental() && hardlinks()) {
+			throw new IllegalArgumentException("incremental snapshots can not be combined with hardlinks");
+		}
+	}
+
+	@Value.Immutable
+	public interface Report {
+		long filesCopied();
+		long bytesCopied();
+		long filesLinked();
+		long filesSkipped();
+		long bytesSkipped();
+		long filesDeleted();
+		Duration duration();
+	}
+
+	@Value.Auxiliary
+	public Report snapshot(Path source, Path target) throws IOException {
+		if (!Files.isDirectory(source)) {
+			throw new IllegalArgumentException("Source must be a directory");
+		}
+		long started = System.currentTimeMillis();
+		Files.createDirectories(target);
+
+		Map<Path, BasicFileAttributes> sourceFiles = files(source);
+
+		ImmutableReport.Builder report = ImmutableReport.builder()
+			.filesLinked(0)
+			.filesSkipped(0)
+			.bytesSkipped(0)
+			.filesDeleted(0);
+
+		if (reflinks() && isEmpty(target) && FileUtils.cloneWithReflinks(source, target)) {
+			report.filesCopied(sourceFiles.size())
+				.bytesCopied(sourceFiles.values().stream().mapToLong(BasicFileAttributes::size).sum());
+		} else {
+			copy(source, target, sourceFiles, report);
+		}
+
+		Report result = report.duration(Duration.ofMillis(System.currentTimeMillis() - started)).build();
+		LOGGER.info("snapshot {} -> {}: {} files ({} bytes) copied, {} files linked, {} files ({} bytes) skipped, {} files deleted in {}ms",
+			source, target, result.filesCopied(), result.bytesCopied(), result.filesLinked(), result.filesSkipped(), result.bytesSkipped(),
+			result.filesDeleted(), result.duration().toMillis());
+		return result;
+	}
+
+	private void copy(Path source, Path target, Map<Path, BasicFileAttributes> sourceFiles, ImmutableReport.Builder report) throws IOException {
+		AtomicLong filesCopied = new AtomicLong();
+		AtomicLong bytesCopied = new AtomicLong();
+		AtomicLong filesLinked = new AtomicLong();
+		AtomicLong filesSkipped = new AtomicLong();
+		AtomicLong bytesSkipped = new AtomicLong();
+
+		if (incremental()) {
+			report.filesDeleted(deleteFilesNotIn(target, sourceFiles.keySet()));
+		}
+
+		FileUtils.forEachParallel(sourceFiles.entrySet(), parallelism(), entry -> {
+			Path sourceFile = source.resolve(entry.getKey());
+			Path targetFile = target.resolve(entry.getKey());
+			BasicFileAttributes attributes = entry.getValue();
+
+			if (incremental() && isUnchanged(targetFile, attributes)) {
+				filesSkipped.incrementAndGet();
+				bytesSkipped.addAndGet(attributes.size());
+				return;
+			}
+			Files.createDirectories(targetFile.getParent());
+			if (hardlinks() && link(sourceFile, targetFile)) {
+				filesLinked.incrementAndGet();
+				return;
+			}
+			Files.copy(sourceFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			filesCopied.incrementAndGet();
+			bytesCopied.addAndGet(attributes.size());
+		});
+
+		report.filesCopied(filesCopied.get())
+			.bytesCopied(bytesCopied.get())
+			.filesLinked(filesLinked.get())
+			.filesSkipped(filesSkipped.get())
+			.bytesSkipped(bytesSkipped.get());
+	}
+
+	private static boolean isUnchanged(Path targetFile, BasicFileAttributes sourceAttributes) {
+		try {
+			BasicFileAttributes targetAttributes = Files.readAttributes(targetFile, BasicFileAttributes.class);
+			// a hardlink of the source file (e.g. from a snapshot with hardlinks) must be replaced by a copy
+			boolean sameFile = targetAttributes.fileKey() != null && targetAttributes.fileKey().equals(sourceAttributes.fileKey());
+			return !sameFile
+				&& targetAttributes.isRegularFile()
+				&& targetAttributes.size() == sourceAttributes.size()
+				&& targetAttributes.lastModifiedTime().equals(sourceAttributes.lastModifiedTime());
+		}
+		catch (IOException ex) {
+			return false;
+		}
+	}
+
+	private static boolean link(Path sourceFile, Path targetFile) {
+		try {
+			Files.deleteIfExists(targetFile);
+			Files.createLink(targetFile, sourceFile);
+			return true;
+		}
+		catch (IOException | UnsupportedOperationException ex) {
+			// e.g. different file systems
+			LOGGER.debug("could not link {}, copy instead", sourceFile, ex);
+			return false;
+		}
+	}
+
+	private static long deleteFilesNotIn(Path target, Set<Path> sourceFiles) throws IOException {
+		Set<Path> sourceDirectories = new HashSet<>();
+		for (Path file : sourceFiles) {
+			for (Path parent = file.getParent(); parent != null; parent = parent.getParent()) {
+				sourceDirectories.add(parent);
+			}
+		}
+
+		List<Path> stale;
+		try (Stream<Path> files = Files.walk(target)) {
+			stale = files.filter(Files::isRegularFile)
+				.filter(it -> !sourceFiles.contains(target.relativize(it)))
+				.collect(Collectors.toList());
+		}
+		for (Path it : stale) {
+			Files.delete(it);
+		}
+		deleteDirectoriesNotIn(target, sourceDirectories);
+		return stale.size();
+	}
+
+	private static void deleteDirectoriesNotIn(Path target, Set<Path> sourceDirectories) throws IOException {
+		List<Path> stale;
+		try (Stream<Path> files = Files.walk(target)) {
+			stale = files.filter(Files::isDirectory)
+				.filter(it -> !it.equals(target))
+				.filter(it -> !sourceDirectories.contains(target.relativize(it)))
+				// children first
+				.sorted(Comparator.reverseOrder())
+				.collect(Collectors.toList());
+		}
+		for (Path it : stale) {
+			if (isEmpty(it)) {
+				Files.delete(it);
+			}
+		}
+	}
+
+	private static Map<Path, BasicFileAttributes> files(Path source) throws IOException {
+		Map<Path, BasicFileAttributes> files = new LinkedHashMap<>();
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				// sockets or pipes can not be copied
+				if (attrs.isRegularFile()) {
+					files.put(source.relativize(file), attrs);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return files;
+	}
+
+	private static boolean isEmpty(Path directory) throws IOException {
+		try (Stream<Path> entries = Files.list(directory)) {
+			return !entries.findAny().isPresent();
+		}
+	}
+
+	public static ImmutableDirectorySnapshot.Builder builder() {
+		return ImmutableDirectorySnapshot.builder();
+	}
+
+	public static ImmutableDirectorySnapshot defaults() {
+		return builder().build();
+	}
+}
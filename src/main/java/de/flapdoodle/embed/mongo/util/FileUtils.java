@@ -20,10 +20,16 @@
  */
 package de.flapdoodle.embed.mongo.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.*;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
 
@@ -53,6 +59,120 @@ public class FileUtils {
         Files.walkFileTree(source, new DirectoryCopier(source, target));
     }
 
+    /**
+     * Clones a directory recursively. Uses copy on write clones (reflinks) if the
+     * filesystem supports them, otherwise all files are copied in parallel.
+     * Hardlinks are not an option, because mongod modifies its data files in place.
+     *
+     * @param source The source directory.
+     * @param target The target directory.
+     */
+    public static void cloneDirectory(final Path source, final Path target) throws IOException {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(target);
+
+        if (!Files.isDirectory(source)) {
+            throw new IllegalArgumentException("Source must be a directory");
+        }
+
+        if (!Files.isDirectory(target)) {
+            throw new IllegalArgumentException("Target must be a directory");
+        }
+
+        if (!cloneWithReflinks(source, target)) {
+            copyDirectoryParallel(source, target, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Copies a directory recursively, files are copied in parallel.
+     *
+     * @param source The source directory.
+     * @param target The target directory.
+     * @param parallelism Number of files copied at the same time.
+     */
+    public static void copyDirectoryParallel(final Path source, final Path target, int parallelism) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
+                return CONTINUE;
+            }
+        });
+
+        forEachParallel(files, parallelism, file -> Files.copy(file, target.resolve(source.relativize(file)),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES));
+    }
+
+    /**
+     * Calls the action for each element in parallel and waits until all are done.
+     *
+     * @param elements The elements, e.g. files.
+     * @param parallelism Number of elements processed at the same time.
+     * @param action The action, the first failure is thrown.
+     */
+    static <T> void forEachParallel(final Collection<T> elements, int parallelism, final IOAction<? super T> action) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (T element : elements) {
+                done.add(executor.submit(() -> {
+                    action.accept(element);
+                    return null;
+                }));
+            }
+            for (Future<?> it : done) {
+                waitFor(it);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    interface IOAction<T> {
+        void accept(T element) throws IOException;
+    }
+
+    static boolean cloneWithReflinks(final Path source, final Path target) {
+        if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) {
+            return false;
+        }
+        try {
+            Process process = new ProcessBuilder("cp", "-R", "--reflink=always", "--preserve=timestamps",
+                source.toAbsolutePath() + File.separator + ".", target.toAbsolutePath().toString())
+                .redirectErrorStream(true)
+                .redirectOutput(new File("/dev/null"))
+                .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <T> T waitFor(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     private static class DirectoryCopier extends SimpleFileVisitor<Path> {
         private final Path source;
         private final Path target;
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * exclusive lock on a file, which works across processes and across threads of one process
+ * (file locks are held on behalf of the whole jvm, so there is only one channel and file lock per path,
+ * which is shared by all threads, and an additional jvm local lock is needed)
+ */
+public final class InterProcessLock implements AutoCloseable {
+
+	private static final ConcurrentMap<Path, SharedLock> LOCKS = new ConcurrentHashMap<>();
+
+	private final SharedLock shared;
+	private final long waitTime;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	private InterProcessLock(SharedLock shared, long waitTime) {
+		this.shared = shared;
+		this.waitTime = waitTime;
+	}
+
+	/**
+	 * @return time in ms spend waiting for the lock
+	 */
+	public long waitTime() {
+		return waitTime;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed.compareAndSet(false, true)) {
+			shared.release();
+		}
+	}
+
+	public static InterProcessLock lock(Path lockFile) throws IOException {
+		long started = System.currentTimeMillis();
+		Path parent = lockFile.toAbsolutePath().normalize().getParent();
+		Files.createDirectories(parent);
+		// same file, same lock, even if the path is spelled differently
+		Path realPath = parent.toRealPath().resolve(lockFile.getFileName());
+
+		SharedLock shared = LOCKS.computeIfAbsent(realPath, SharedLock::new);
+		shared.acquire();
+		return new InterProcessLock(shared, System.currentTimeMillis() - started);
+	}
+
+	private static final class SharedLock {
+		private final Path lockFile;
+		private final ReentrantLock localLock = new ReentrantLock();
+
+		// guarded by localLock
+		private FileChannel channel;
+		private FileLock fileLock;
+		private int holds;
+
+		private SharedLock(Path lockFile) {
+			this.lockFile = lockFile;
+		}
+
+		private void acquire() throws IOException {
+			localLock.lock();
+			try {
+				if (holds == 0) {
+					FileChannel newChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					try {
+						fileLock = newChannel.lock();
+						channel = newChannel;
+					}
+					catch (IOException | RuntimeException ex) {
+						newChannel.close();
+						throw ex;
+					}
+				}
+				holds++;
+			}
+			catch (IOException | RuntimeException ex) {
+				localLock.unlock();
+				throw ex;
+			}
+		}
+
+		private void release() throws IOException {
+			try {
+				if (--holds == 0) {
+					try {
+						fileLock.release();
+					}
+					finally {
+						channel.close();
+						channel = null;
+						fileLock = null;
+					}
+				}
+			}
+			finally {
+				localLock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+/**
+ * keeps the last lines of some output, bounded by line count and number of characters
+ */
+public final class LineRingBuffer {
+
+	private final String[] lines;
+	private final int maxCharacters;
+
+	private int head = 0;
+	private int count = 0;
+	private int characters = 0;
+	private long dropped = 0;
+
+	public LineRingBuffer(int maxLines, int maxCharacters) {
+		if (maxLines < 1) throw new IllegalArgumentException("maxLines < 1: " + maxLines);
+		if (maxCharacters < 1) throw new IllegalArgumentException("maxCharacters < 1: " + maxCharacters);
+		this.lines = new String[maxLines];
+		this.maxCharacters = maxCharacters;
+	}
+
+	public synchronized void add(String line) {
+		String value = line.length() > maxCharacters
+			? line.substring(0, maxCharacters)
+			: line;
+
+		while (count == lines.length || (count > 0 && characters + value.length() > maxCharacters)) {
+			removeOldest();
+		}
+
+		lines[(head + count) % lines.length] = value;
+		count++;
+		characters += value.length();
+	}
+
+	private void removeOldest() {
+		characters -= lines[head].length();
+		lines[head] = null;
+		head = (head + 1) % lines.length;
+		count--;
+		dropped++;
+	}
+
+	/**
+	 * @return number of lines which did not fit into this buffer
+	 */
+	public synchronized long dropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return remaining lines, each followed by a line break
+	 */
+	public synchronized String asString() {
+		StringBuilder sb = new StringBuilder(characters + count);
+		if (dropped > 0) {
+			sb.append("[... ").append(dropped).append(" lines skipped ...]\n");
+		}
+		for (int i = 0; i < count; i++) {
+			sb.append(lines[(head + i) % lines.length]).append('\n');
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return asString();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.client;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Indexes;
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.MongodStarter;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientActionsTest {
+
+	@Test
+	public void dropDatabases() {
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+				mongo.getDatabase("first").getCollection("col").insertOne(new Document("key", "value"));
+				mongo.getDatabase("second").getCollection("col").insertOne(new Document("key", "value"));
+
+				ClientActions.resetDatabases(new SyncClientAdapter(), running.current(), ResetMode.DROP_DATABASES);
+
+				assertThat(mongo.listDatabaseNames())
+					.doesNotContain("first", "second")
+					.contains("admin");
+			}
+		}
+	}
+
+	@Test
+	public void clearCollectionsKeepsCollectionsAndIndexes() {
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+				MongoDatabase db = mongo.getDatabase("test");
+				db.createCollection("capped", new CreateCollectionOptions().capped(true).sizeInBytes(4096));
+				db.getCollection("capped").createIndex(Indexes.ascending("key"));
+				db.getCollection("capped").insertOne(new Document("key", "value"));
+				// more collections than the first batch of a listCollections cursor
+				for (int i = 0; i < 120; i++) {
+					db.getCollection("col" + i).insertOne(new Document("key", "value"));
+				}
+
+				ClientActions.resetDatabases(new SyncClientAdapter(), running.current(), ResetMode.CLEAR_COLLECTIONS);
+
+				assertThat(db.listCollectionNames().into(new ArrayList<>())).hasSize(121);
+				for (int i = 0; i < 120; i++) {
+					assertThat(db.getCollection("col" + i).countDocuments()).isEqualTo(0L);
+				}
+
+				assertThat(db.getCollection("capped").countDocuments()).isEqualTo(0L);
+				Document cappedOptions = db.listCollections().filter(new Document("name", "capped")).first()
+					.get("options", Document.class);
+				assertThat(cappedOptions.getBoolean("capped")).isTrue();
+
+				List<String> indexNames = new ArrayList<>();
+				db.getCollection("capped").listIndexes().forEach(index -> indexNames.add(index.getString("name")));
+				assertThat(indexNames).contains("key_1");
+			}
+		}
+	}
+
+	@Test
+	public void noShutdownCommandIfProcessIsKilled() {
+		RecordingClients executeAction = new RecordingClients();
+		Mongod mongod = Mongod.instance()
+			.withMongodStarter(MongodStarter.withDefaults()
+				.withTeardownPolicy(TeardownPolicy.KILL));
+
+		RunningMongodProcess process;
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = mongod.start(Version.Main.PRODUCTION,
+			ClientActions.setupAuthentication(executeAction, "admin", AuthenticationSetup.of(UsernamePassword.of("admin-user", "admin-password"))))) {
+			process = running.current();
+			assertThat(process.teardownPolicy()).isEqualTo(TeardownPolicy.KILL);
+		}
+
+		assertThat(process.isAlive()).isFalse();
+		assertThat(executeAction.commands)
+			.isNotEmpty()
+			.noneMatch(command -> command.containsKey("shutdown"));
+	}
+
+	static class RecordingClients extends SyncClientAdapter {
+		private final List<Document> commands = new CopyOnWriteArrayList<>();
+
+		@Override
+		protected Document resultOfAction(MongoClient client, MongoClientAction.Action action) {
+			if (action instanceof MongoClientAction.RunCommand) {
+				commands.add(((MongoClientAction.RunCommand) action).command());
+			}
+			return super.resultOfAction(client, action);
+		}
+	}
+}
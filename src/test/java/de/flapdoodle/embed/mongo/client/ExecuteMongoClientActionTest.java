@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.client;
+
+import com.mongodb.MongoCredential;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecuteMongoClientActionTest {
+
+	@Test
+	public void clientsAreReusedPerProcessAndCredentialsAndClosedWithProcess() {
+		CountingClients executeAction = new CountingClients();
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			ImmutableMongoClientAction ping = MongoClientAction.runCommand("admin", new Document("ping", 1));
+			MongoClientAction.Credentials credentials = MongoClientAction.credentials("admin", "user", "password".toCharArray());
+
+			executeAction.execute(running.current(), ping);
+			executeAction.execute(running.current(), ping);
+			executeAction.execute(running.current(), ping.withCredentials(credentials));
+			executeAction.execute(running.current(), ping.withCredentials(credentials));
+
+			assertThat(executeAction.created).hasValue(2);
+			assertThat(executeAction.closed).hasValue(0);
+		}
+
+		assertThat(executeAction.closed).hasValue(2);
+	}
+
+	@Test
+	public void failedClientCreationIsPassedToOnError() {
+		CountingClients executeAction = new CountingClients();
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+			executeAction.execute(running.current(), MongoClientAction.runCommand("admin", new Document("ping", 1))
+				.withCredentials(MongoClientAction.credentials("admin", "broken", "password".toCharArray()))
+				.withOnError(failure::set));
+
+			assertThat(failure.get()).hasMessage("could not create client for broken");
+		}
+	}
+
+	static class CountingClients extends ExecuteMongoClientAction<Closeable> {
+		private final AtomicInteger created = new AtomicInteger();
+		private final AtomicInteger closed = new AtomicInteger();
+
+		@Override
+		protected Closeable client(ServerAddress serverAddress) {
+			created.incrementAndGet();
+			return closed::incrementAndGet;
+		}
+
+		@Override
+		protected Closeable client(ServerAddress serverAddress, MongoCredential credential) {
+			if ("broken".equals(credential.getUserName())) {
+				throw new IllegalStateException("could not create client for broken");
+			}
+			created.incrementAndGet();
+			return closed::incrementAndGet;
+		}
+
+		@Override
+		protected Document resultOfAction(Closeable client, MongoClientAction.Action action) {
+			return new Document("ok", 1.0);
+		}
+	}
+}
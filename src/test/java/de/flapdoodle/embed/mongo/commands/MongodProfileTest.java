@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.commands;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.distribution.Versions;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.os.CommonOS;
+import de.flapdoodle.os.Platform;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongodProfileTest {
+
+	private static final Platform PLATFORM = Platform.detect(CommonOS.list());
+	private static final Net NET = Net.of("localhost", 27017, false);
+	private static final DatabaseDir DATABASE_DIR = DatabaseDir.of(Paths.get("db"));
+
+	@Test
+	void explicitParamsOverrideProfile() {
+		List<String> arguments = MongodArguments.builder()
+			.profile(MongodProfile.FAST_EPHEMERAL)
+			.putParams("ttlMonitorEnabled", "true")
+			.build()
+			.asArguments(PLATFORM, Version.Main.V7_0, NET, DATABASE_DIR);
+
+		assertThat(arguments)
+			.contains("diagnosticDataCollectionEnabled=false", "ttlMonitorEnabled=true", "--wiredTigerCacheSizeGB", "0.25", "--journalCommitInterval")
+			.doesNotContain("ttlMonitorEnabled=false");
+	}
+
+	@Test
+	void durableProfileKeepsJournalAndDefaultSyncDelay() {
+		List<String> arguments = MongodArguments.builder()
+			.profile(MongodProfile.DURABLE)
+			.build()
+			.asArguments(PLATFORM, Version.Main.V4_4, NET, DATABASE_DIR);
+
+		assertThat(arguments)
+			.contains("--syncdelay", "60")
+			.doesNotContain("--nojournal", "--syncdelay=0");
+	}
+
+	@Test
+	void wiredTigerFlagsAreSkippedForOtherStorageEngines() {
+		List<String> arguments = MongodArguments.builder()
+			.profile(MongodProfile.LOW_MEMORY)
+			.storageEngine("ephemeralForTest")
+			.build()
+			.asArguments(PLATFORM, Version.Main.V4_4, NET, DATABASE_DIR);
+
+		assertThat(arguments)
+			.contains("diagnosticDataCollectionEnabled=false")
+			.doesNotContain("--wiredTigerCacheSizeGB");
+	}
+
+	@Test
+	void versionDependentFlagsAreSkippedIfVersionIsUnknown() {
+		List<String> arguments = MongodArguments.builder()
+			.profile(MongodProfile.FAST_EPHEMERAL)
+			.storageEngine("wiredTiger")
+			.build()
+			.asArguments(PLATFORM, Versions.withFeatures(de.flapdoodle.embed.process.distribution.Version.of("custom-build")), NET, DATABASE_DIR);
+
+		assertThat(arguments)
+			.contains("ttlMonitorEnabled=false")
+			.doesNotContain("diagnosticDataCollectionEnabled=false", "--wiredTigerCacheSizeGB", "--journalCommitInterval");
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PortAllocatorTest {
+
+	@Test
+	void forksWithDifferentStripesGetDisjointPorts(@TempDir Path lockDir) throws IOException {
+		InetAddress localHost = InetAddress.getLoopbackAddress();
+		PortAllocator first = new PortAllocator(lockDir, 21000, 21399, 4, 0);
+		PortAllocator second = new PortAllocator(lockDir, 21000, 21399, 4, 1);
+
+		Set<Integer> ports = new HashSet<>();
+		for (int i = 0; i < 10; i++) {
+			ports.add(first.reserve(localHost));
+			ports.add(second.reserve(localHost));
+		}
+
+		assertThat(ports).hasSize(20);
+	}
+
+	@Test
+	void reservedPortIsNotHandedOutByAnotherAllocator(@TempDir Path lockDir) throws IOException {
+		InetAddress localHost = InetAddress.getLoopbackAddress();
+		PortAllocator first = new PortAllocator(lockDir, 21400, 21401, 1, 0);
+		PortAllocator second = new PortAllocator(lockDir, 21400, 21401, 1, 0);
+
+		int port = first.reserve(localHost);
+		assertThat(first.isReserved(port)).isTrue();
+
+		int otherPort = second.reserve(localHost);
+		assertThat(otherPort).isNotEqualTo(port);
+
+		first.release(port);
+		second.release(otherPort);
+		assertThat(first.isReserved(port)).isFalse();
+	}
+
+	@Test
+	void fallbackToAnyFreePortIfLockDirIsNotUsable(@TempDir Path tempDir) throws IOException {
+		Path noDir = Files.createFile(tempDir.resolve("not-a-dir"));
+		PortAllocator allocator = new PortAllocator(noDir, 21500, 21501, 1, 0);
+
+		int port = allocator.reserve(InetAddress.getLoopbackAddress());
+
+		assertThat(port).isPositive();
+		assertThat(allocator.isReserved(port)).isFalse();
+	}
+
+	@Test
+	void userNameIsUsableAsPartOfAFileName() {
+		assertThat(PortAllocator.userName()).matches("[A-Za-z0-9._-]+");
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.distribution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerFeatureTest {
+
+	@Test
+	void enabledSinceVersion() {
+		assertThat(Version.V3_4_5.enabled(ServerFeature.OP_MSG)).isFalse();
+		assertThat(Version.V3_6_22.enabled(ServerFeature.OP_MSG)).isTrue();
+		assertThat(Version.Main.V7_0.enabled(ServerFeature.OP_MSG)).isTrue();
+	}
+
+	@Test
+	void disabledIfVersionHasNoVersionNumber() {
+		IFeatureAwareVersion custom = Versions.withFeatures(de.flapdoodle.embed.process.distribution.Version.of("custom-build"));
+
+		for (ServerFeature feature : ServerFeature.values()) {
+			assertThat(custom.enabled(feature)).describedAs(feature.name()).isFalse();
+		}
+	}
+}
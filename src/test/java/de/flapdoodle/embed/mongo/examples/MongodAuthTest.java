@@ -29,6 +29,7 @@ import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import de.flapdoodle.embed.mongo.client.AuthenticationSetup;
 import de.flapdoodle.embed.mongo.client.ClientActions;
+import de.flapdoodle.embed.mongo.client.ReactiveClientAdapter;
 import de.flapdoodle.embed.mongo.client.SyncClientAdapter;
 import de.flapdoodle.embed.mongo.client.UsernamePassword;
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
@@ -46,6 +47,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static de.flapdoodle.embed.mongo.MongoClientUtil.mongoClient;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -197,6 +199,60 @@ public class MongodAuthTest {
 		}
 	}
 
+	@Test
+	public void rolesAndUsersAreCreatedConcurrentlyInStages() {
+		// more roles and users than threads for concurrent actions
+		List<AuthenticationSetup.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			String roleName = "role-" + i;
+			entries.add(AuthenticationSetup.role(DB_TEST, COLL_TEST + i, roleName).withActions("find", "insert"));
+			entries.add(AuthenticationSetup.user(DB_TEST, UsernamePassword.of("user-" + i, ("password-" + i).toCharArray())).withRoles(roleName));
+		}
+		Listener withRunningMongod = ClientActions.setupAuthentication(new SyncClientAdapter(), DB_ADMIN,
+			AuthenticationSetup.of(UsernamePassword.of(USERNAME_ADMIN, PASSWORD_ADMIN)).withEntries(entries));
+
+		try (final TransitionWalker.ReachedState<RunningMongodProcess> running = startMongod(true, withRunningMongod)) {
+			final ServerAddress address = getServerAddress(running);
+
+			for (int i = 0; i < 6; i++) {
+				final MongoCredential credential = MongoCredential.createCredential("user-" + i, DB_TEST, ("password-" + i).toCharArray());
+				try (final MongoClient client = mongoClient(address, credential)) {
+					client.getDatabase(DB_TEST).getCollection(COLL_TEST + i).insertOne(new Document("key", "value"));
+					assertThat(client.getDatabase(DB_TEST).getCollection(COLL_TEST + i).countDocuments()).isEqualTo(1L);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void setupAuthenticationOfRunningProcess() throws Exception {
+		ReactiveClientAdapter clientAdapter = new ReactiveClientAdapter();
+		RunningMongodProcess process;
+
+		try (final TransitionWalker.ReachedState<RunningMongodProcess> running = startMongod(true)) {
+			process = running.current();
+			ClientActions.setupAuthenticationAsync(clientAdapter, process, DB_ADMIN, AuthenticationSetup.of(UsernamePassword.of(USERNAME_ADMIN, PASSWORD_ADMIN))
+					.withEntries(
+						AuthenticationSetup.user(DB_TEST, UsernamePassword.of(USERNAME_NORMAL_USER, PASSWORD_NORMAL_USER)).withRoles("readWrite")
+					))
+				.toCompletableFuture()
+				.get(30, TimeUnit.SECONDS);
+
+			final ServerAddress address = getServerAddress(running);
+			final MongoCredential credentialNormalUser =
+				MongoCredential.createCredential(USERNAME_NORMAL_USER, DB_TEST, PASSWORD_NORMAL_USER.toCharArray());
+
+			try (final MongoClient clientNormalUser = mongoClient(address, credentialNormalUser)) {
+				clientNormalUser.getDatabase(DB_TEST).getCollection(COLL_TEST).insertOne(new Document("key", "value"));
+				assertThat(clientNormalUser.getDatabase(DB_TEST).listCollectionNames().into(new ArrayList<>()))
+					.containsExactly(COLL_TEST);
+			}
+		}
+
+		// stopped with the authenticated shutdown command
+		assertThat(process.isAlive()).isFalse();
+	}
+
 	private static TransitionWalker.ReachedState<RunningMongodProcess> startMongod(Listener... listener) {
 		return startMongod(false, listener);
 	}
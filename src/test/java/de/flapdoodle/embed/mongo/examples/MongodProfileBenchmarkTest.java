@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.examples;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import de.flapdoodle.embed.mongo.Versions;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.MongodProfile;
+import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * startup time and insert throughput of each profile, run all versions with -Dembedmongo.benchmark=true
+ */
+public class MongodProfileBenchmarkTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MongodProfileBenchmarkTest.class);
+
+	private static final int DOCUMENTS = 1000;
+
+	@Test
+	public void profilesOfProductionVersion() {
+		List<String> results = benchmark(Collections.singletonList(Version.Main.PRODUCTION));
+		assertThat(results).noneMatch(it -> it.contains("failed"));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "embedmongo.benchmark", matches = "true")
+	public void profilesOfAllVersions() {
+		benchmark(Versions.testableVersions(Version.Main.class));
+	}
+
+	private static List<String> benchmark(Collection<? extends IFeatureAwareVersion> versions) {
+		List<Optional<MongodProfile>> profiles = new ArrayList<>();
+		profiles.add(Optional.empty());
+		Arrays.stream(MongodProfile.values()).map(Optional::of).forEach(profiles::add);
+
+		List<String> results = new ArrayList<>();
+		for (IFeatureAwareVersion version : versions) {
+			for (Optional<MongodProfile> profile : profiles) {
+				results.add(version.asInDownloadPath() + " " + profile.map(Enum::name).orElse("NONE") + ": " + benchmark(version, profile));
+			}
+		}
+		LOGGER.info("\n---------------------------------------\n{}\n---------------------------------------", String.join("\n", results));
+		return results;
+	}
+
+	private static String benchmark(IFeatureAwareVersion version, Optional<MongodProfile> profile) {
+		Mongod mongod = Mongod.instance()
+			.withMongodArguments(Start.to(MongodArguments.class)
+				.initializedWith(MongodArguments.defaults().withProfile(profile)));
+
+		long started = System.currentTimeMillis();
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = mongod.start(version)) {
+			long startup = System.currentTimeMillis() - started;
+
+			try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+				MongoCollection<Document> col = mongo.getDatabase("benchmark").getCollection("documents");
+				long insertStarted = System.currentTimeMillis();
+				for (int i = 0; i < DOCUMENTS; i++) {
+					col.insertOne(new Document("index", i));
+				}
+				long inserts = System.currentTimeMillis() - insertStarted;
+				return "startup " + startup + "ms, " + DOCUMENTS + " inserts " + inserts + "ms";
+			}
+		}
+		catch (RuntimeException rx) {
+			LOGGER.warn("{} with {} failed", version, profile, rx);
+			return "failed: " + rx.getMessage();
+		}
+	}
+}
@@ -20,20 +20,34 @@
  */
 package de.flapdoodle.embed.mongo.examples;
 
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.mongo.transitions.Mongod;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
 import de.flapdoodle.embed.mongo.types.DatabaseDir;
+import de.flapdoodle.embed.mongo.util.DirectorySnapshot;
 import de.flapdoodle.embed.mongo.util.FileUtils;
 import de.flapdoodle.reverse.Listener;
 import de.flapdoodle.reverse.StateID;
 import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
 import de.flapdoodle.types.Try;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SnapshotDbFilesTest {
@@ -55,4 +69,61 @@ public class SnapshotDbFilesTest {
 			.isDirectory()
 			.isDirectoryContaining(path -> path.getFileName().toString().startsWith("WiredTiger.lock"));
 	}
+
+	@Test
+	public void incrementalSnapshotOfDbFiles(@TempDir Path databaseDir, @TempDir Path destination) throws IOException {
+		DirectorySnapshot snapshot = DirectorySnapshot.defaults();
+		List<DirectorySnapshot.Report> reports = new ArrayList<>();
+
+		Listener listener = Listener.typedBuilder()
+			.onStateTearDown(StateID.of(DatabaseDir.class), dir -> {
+				reports.add(Try.get(() -> snapshot.snapshot(dir.value(), destination)));
+			})
+			.build();
+
+		Mongod mongod = Mongod.instance()
+			.withDatabaseDir(Start.to(DatabaseDir.class).initializedWith(DatabaseDir.of(databaseDir)));
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = mongod.start(Version.Main.PRODUCTION, listener)) {
+			insert(running, "first");
+		}
+
+		assertThat(reports).hasSize(1);
+		assertThat(reports.get(0).bytesCopied()).isGreaterThan(0);
+		assertThat(destination)
+			.isDirectory()
+			.isDirectoryContaining(path -> path.getFileName().toString().startsWith("WiredTiger.lock"));
+
+		Path staleFile = destination.resolve("stale").resolve("collection-stale.wt");
+		Files.createDirectories(staleFile.getParent());
+		Files.write(staleFile, "stale".getBytes(StandardCharsets.UTF_8));
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = mongod.start(Version.Main.PRODUCTION, listener)) {
+			insert(running, "second");
+		}
+
+		assertThat(reports).hasSize(2);
+		DirectorySnapshot.Report second = reports.get(1);
+		assertThat(second.filesCopied()).isGreaterThan(0);
+		assertThat(second.filesSkipped()).isGreaterThan(0);
+		assertThat(second.filesDeleted()).isGreaterThanOrEqualTo(1);
+
+		assertThat(staleFile).doesNotExist();
+		assertThat(staleFile.getParent()).doesNotExist();
+		assertThat(relativeFiles(destination)).isEqualTo(relativeFiles(databaseDir));
+	}
+
+	private static void insert(TransitionWalker.ReachedState<RunningMongodProcess> running, String collection) {
+		try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+			mongo.getDatabase("snapshot").getCollection(collection).insertOne(new Document("name", collection));
+		}
+	}
+
+	private static Set<Path> relativeFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile)
+				.map(directory::relativize)
+				.collect(Collectors.toSet());
+		}
+	}
 }
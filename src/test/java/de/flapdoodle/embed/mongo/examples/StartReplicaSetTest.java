@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.examples;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.client.SyncClientAdapter;
+import de.flapdoodle.embed.mongo.cluster.ReplicaSet;
+import de.flapdoodle.embed.mongo.cluster.RunningReplicaSet;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartReplicaSetTest {
+
+	@Test
+	public void startReplicaSetWithThreeMembers() {
+		ReplicaSet replicaSet = ReplicaSet.builder("testRepSet")
+			.executeAction(new SyncClientAdapter())
+			.members(3)
+			.build();
+
+		try (RunningReplicaSet running = replicaSet.start(Version.Main.PRODUCTION)) {
+			assertThat(running.members()).hasSize(3);
+			assertThat(running.initTime()).isPositive();
+
+			try (MongoClient mongo = MongoClients.create(running.connectionString())) {
+				Document status = mongo.getDatabase("admin").runCommand(new Document("replSetGetStatus", 1));
+				List<Document> members = status.getList("members", Document.class);
+
+				assertThat(members)
+					.extracting(member -> member.getString("stateStr"))
+					.containsExactlyInAnyOrder("PRIMARY", "SECONDARY", "SECONDARY");
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.examples;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.client.SyncClientAdapter;
+import de.flapdoodle.embed.mongo.cluster.RunningShardedCluster;
+import de.flapdoodle.embed.mongo.cluster.ShardedCluster;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartShardedClusterTest {
+
+	@Test
+	public void startClusterWithTwoShards() {
+		ShardedCluster cluster = ShardedCluster.builder()
+			.executeAction(new SyncClientAdapter())
+			.shards(2)
+			.build();
+
+		try (RunningShardedCluster running = cluster.start(Version.Main.PRODUCTION)) {
+			try (MongoClient mongo = MongoClients.create(running.connectionString())) {
+				List<Document> shards = mongo.getDatabase("admin")
+					.runCommand(new Document("listShards", 1))
+					.getList("shards", Document.class);
+
+				assertThat(shards)
+					.extracting(shard -> shard.getString("_id"))
+					.containsExactlyInAnyOrder("cluster-shard0", "cluster-shard1");
+
+				mongo.getDatabase("test").getCollection("testCol").insertOne(new Document("key", "value"));
+				assertThat(mongo.getDatabase("test").getCollection("testCol").countDocuments()).isEqualTo(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.pool;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongodPoolTest {
+
+	@Test
+	public void releasedInstanceIsResetAndLeasedAgain() {
+		MongodPool pool = MongodPool.builder()
+			.size(1)
+			.build();
+
+		try (RunningMongodPool running = pool.start(Version.Main.PRODUCTION)) {
+			try (MongodLease lease = running.lease()) {
+				try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(lease.current().getServerAddress()))) {
+					mongo.getDatabase("test").getCollection("testCol").insertOne(new Document("key", "value"));
+				}
+			}
+
+			try (MongodLease lease = running.lease()) {
+				try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(lease.current().getServerAddress()))) {
+					assertThat(mongo.listDatabaseNames()).doesNotContain("test");
+				}
+			}
+
+			MongodPoolStats stats = running.stats();
+			assertThat(stats.hits() + stats.misses()).isEqualTo(2L);
+		}
+	}
+
+	@Test
+	public void evictedInstanceIsReplacedBeforeNextLease() throws InterruptedException {
+		MongodPool pool = MongodPool.builder()
+			.size(1)
+			.maxIdle(Duration.ofSeconds(2))
+			.build();
+
+		try (RunningMongodPool running = pool.start(Version.Main.PRODUCTION)) {
+			long deadline = System.currentTimeMillis() + 60_000;
+			while (running.stats().started() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100);
+			}
+			assertThat(running.stats().discarded()).isGreaterThanOrEqualTo(1L);
+
+			try (MongodLease lease = running.lease()) {
+				assertThat(lease.current().isAlive()).isTrue();
+			}
+
+			MongodPoolStats stats = running.stats();
+			assertThat(stats.hits()).isEqualTo(1L);
+			assertThat(stats.misses()).isEqualTo(0L);
+		}
+	}
+}
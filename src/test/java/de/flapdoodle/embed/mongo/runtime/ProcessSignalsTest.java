@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessSignalsTest {
+
+	@Test
+	void terminateProcessWithoutExternalKillCommand() throws IOException, InterruptedException {
+		assumeTrue(ProcessSignals.isSupported(), "ProcessHandle not available");
+		assumeTrue(File.separatorChar == '/', "needs a posix shell");
+
+		Process process = new ProcessBuilder("sh", "-c", "echo $$; exec sleep 30").start();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			long pid = Long.parseLong(reader.readLine().trim());
+
+			assertThat(ProcessSignals.term(pid, Duration.ofSeconds(5))).isTrue();
+			assertThat(process.waitFor(5, TimeUnit.SECONDS)).isTrue();
+		}
+		finally {
+			process.destroyForcibly();
+		}
+	}
+
+	@Test
+	void unknownProcessIsAlreadyGone() {
+		assumeTrue(ProcessSignals.isSupported(), "ProcessHandle not available");
+
+		assertThat(ProcessSignals.kill(Integer.MAX_VALUE, Duration.ofMillis(100))).isTrue();
+	}
+}
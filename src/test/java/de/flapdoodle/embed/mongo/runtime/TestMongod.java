@@ -22,6 +22,18 @@ package de.flapdoodle.embed.mongo.runtime;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 //CHECKSTYLE:OFF
@@ -38,4 +50,75 @@ public class TestMongod {
 
 		assertThat(Mongod.getMongodProcessId(consoleOutput, -1)).describedAs("PID").isEqualTo(11026);
 	}
+
+	@Test
+	public void isMasterProbeFailsIfNobodyIsListening() throws IOException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		assertThat(Mongod.isMasterReplied(InetAddress.getLoopbackAddress(), port, 100)).isFalse();
+	}
+
+	@Test
+	public void isMasterProbeSendsQueryAndWaitsForReply() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			CompletableFuture<Integer> opCode = answerWith(server, requestId -> okReply(requestId, 1.0));
+
+			assertThat(Mongod.isMasterReplied(InetAddress.getLoopbackAddress(), server.getLocalPort(), 1000)).isTrue();
+			assertThat(opCode.get(1, TimeUnit.SECONDS)).isEqualTo(2004);
+		}
+	}
+
+	@Test
+	public void isMasterProbeFailsIfReplyIsNotOk() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			answerWith(server, requestId -> okReply(requestId, 0.0));
+			assertThat(Mongod.isMasterReplied(InetAddress.getLoopbackAddress(), server.getLocalPort(), 1000)).isFalse();
+		}
+	}
+
+	@Test
+	public void isMasterProbeFailsIfSomethingElseIsListening() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			answerWith(server, requestId -> "HTTP/1.1 400 Bad Request\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			assertThat(Mongod.isMasterReplied(InetAddress.getLoopbackAddress(), server.getLocalPort(), 1000)).isFalse();
+		}
+	}
+
+	private static CompletableFuture<Integer> answerWith(ServerSocket server, IntFunction<byte[]> reply) {
+		return CompletableFuture.supplyAsync(() -> {
+			try (Socket client = server.accept()) {
+				DataInputStream in = new DataInputStream(client.getInputStream());
+				byte[] header = new byte[16];
+				in.readFully(header);
+				ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+				int length = buffer.getInt(0);
+				in.readFully(new byte[length - 16]);
+				client.getOutputStream().write(reply.apply(buffer.getInt(4)));
+				client.getOutputStream().flush();
+				return buffer.getInt(12);
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
+	// OP_REPLY with { ismaster: true, ok: <ok> }
+	private static byte[] okReply(int responseTo, double ok) {
+		byte[] ismaster = "ismaster\0".getBytes(StandardCharsets.US_ASCII);
+		byte[] okName = "ok\0".getBytes(StandardCharsets.US_ASCII);
+		int documentLength = 4 + 1 + ismaster.length + 1 + 1 + okName.length + 8 + 1;
+		int messageLength = 16 + 4 + 8 + 4 + 4 + documentLength;
+		return ByteBuffer.allocate(messageLength)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.putInt(messageLength).putInt(2).putInt(responseTo).putInt(1)
+			.putInt(8).putLong(0).putInt(0).putInt(1)
+			.putInt(documentLength)
+			.put((byte) 0x08).put(ismaster).put((byte) 1)
+			.put((byte) 0x01).put(okName).putDouble(ok)
+			.put((byte) 0)
+			.array();
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.store;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.config.store.FileType;
+import de.flapdoodle.embed.process.store.ExtractedFileSetStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexedExtractedFileSetStoreTest {
+
+	@Test
+	public void warmLookupMustNotCallWrappedStore(@TempDir Path tempDir) throws IOException {
+		Path archive = Files.write(tempDir.resolve("archive.tgz"), "archive".getBytes());
+		Path executable = Files.write(Files.createDirectories(tempDir.resolve("fileSet")).resolve("mongod"), "bin".getBytes());
+		ExtractedFileSet extracted = ExtractedFileSet.builder(tempDir.resolve("fileSet"))
+			.executable(executable)
+			.build();
+		FileSet fileSet = FileSet.builder().addEntry(FileType.Executable, "mongod").build();
+
+		AtomicInteger lookups = new AtomicInteger();
+		ExtractedFileSetStore wrapped = new ExtractedFileSetStore() {
+			@Override
+			public Optional<ExtractedFileSet> extractedFileSet(Path archive, FileSet fileSet) {
+				lookups.incrementAndGet();
+				return Optional.of(extracted);
+			}
+
+			@Override
+			public ExtractedFileSet store(Path archive, FileSet fileSet, ExtractedFileSet src) {
+				return src;
+			}
+		};
+
+		IndexedExtractedFileSetStore testee = new IndexedExtractedFileSetStore(wrapped, tempDir.resolve("index"));
+
+		assertThat(testee.extractedFileSet(archive, fileSet)).contains(extracted);
+		assertThat(testee.extractedFileSet(archive, fileSet)).contains(extracted);
+		assertThat(lookups.get()).isEqualTo(1);
+
+		Files.setLastModifiedTime(archive, FileTime.fromMillis(Files.getLastModifiedTime(archive).toMillis() + 10000));
+
+		assertThat(testee.extractedFileSet(archive, fileSet)).contains(extracted);
+		assertThat(lookups.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void missingLibraryFileMustCallWrappedStoreAgain(@TempDir Path tempDir) throws IOException {
+		Path archive = Files.write(tempDir.resolve("archive.tgz"), "archive".getBytes());
+		Path fileSetDir = Files.createDirectories(tempDir.resolve("fileSet"));
+		Path executable = Files.write(fileSetDir.resolve("mongod"), "bin".getBytes());
+		Path library = Files.write(fileSetDir.resolve("libssl.so"), "lib".getBytes());
+		ExtractedFileSet extracted = ExtractedFileSet.builder(fileSetDir)
+			.executable(executable)
+			.addLibraryFiles(library)
+			.build();
+		FileSet fileSet = FileSet.builder()
+			.addEntry(FileType.Executable, "mongod")
+			.addEntry(FileType.Library, "libssl.so")
+			.build();
+
+		AtomicInteger lookups = new AtomicInteger();
+		ExtractedFileSetStore wrapped = new ExtractedFileSetStore() {
+			@Override
+			public Optional<ExtractedFileSet> extractedFileSet(Path archive, FileSet fileSet) {
+				lookups.incrementAndGet();
+				return Files.isRegularFile(library) ? Optional.of(extracted) : Optional.empty();
+			}
+
+			@Override
+			public ExtractedFileSet store(Path archive, FileSet fileSet, ExtractedFileSet src) {
+				return src;
+			}
+		};
+
+		IndexedExtractedFileSetStore testee = new IndexedExtractedFileSetStore(wrapped, tempDir.resolve("index"));
+
+		assertThat(testee.extractedFileSet(archive, fileSet)).contains(extracted);
+		assertThat(lookups.get()).isEqualTo(1);
+
+		Files.delete(library);
+
+		assertThat(testee.extractedFileSet(archive, fileSet)).isEmpty();
+		assertThat(lookups.get()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseDirFromTemplateTest {
+
+	@Test
+	public void startFromRecordedTemplate(@TempDir Path templateDir) {
+		DatabaseDirTemplate template = DatabaseDirTemplate.of(templateDir);
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance()
+			.start(Version.Main.PRODUCTION, template.recordOnTearDown())) {
+			try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+				mongo.getDatabase("fixture").getCollection("testCol").insertOne(new Document("key", "value"));
+			}
+		}
+
+		assertThat(template.key()).contains(Version.Main.PRODUCTION.asInDownloadPath() + ":default");
+
+		Mongod fromTemplate = Mongod.instance().withDatabaseDir(DatabaseDirFromTemplate.of(template));
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = fromTemplate.start(Version.Main.PRODUCTION)) {
+			try (MongoClient mongo = MongoClients.create("mongodb://" + serverAddress(running.current().getServerAddress()))) {
+				MongoCollection<Document> col = mongo.getDatabase("fixture").getCollection("testCol");
+				assertThat(col.countDocuments()).isEqualTo(1L);
+			}
+		}
+
+		assertThatThrownBy(() -> fromTemplate.start(Version.Main.V5_0))
+			.isInstanceOf(RuntimeException.class);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseDirOnFastestFileSystemTest {
+
+	@Test
+	public void skipLocationsWithoutEnoughSpace(@TempDir Path first, @TempDir Path second) {
+		Optional<DatabaseDirOnFastestFileSystem.FileSystemProbe> fastest = DatabaseDirOnFastestFileSystem.fastest(Arrays.asList(first, second), 1);
+		assertThat(fastest).isPresent();
+		assertThat(fastest.get().directory()).isIn(first, second);
+		assertThat(fastest.get().failure()).isEmpty();
+
+		assertThat(DatabaseDirOnFastestFileSystem.fastest(Collections.singletonList(first), Long.MAX_VALUE)).isEmpty();
+		assertThat(DatabaseDirOnFastestFileSystem.probes()).containsKeys(first, second);
+	}
+
+	@Test
+	public void startMongodOnFastestFileSystem() {
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance()
+			.withDatabaseDir(DatabaseDirOnFastestFileSystem.withDefaults())
+			.start(Version.Main.PRODUCTION)) {
+			assertThat(running.current().isAlive()).isTrue();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.config.store.FileType;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.distribution.ArchiveType;
+import de.flapdoodle.embed.process.io.directories.PersistentDir;
+import de.flapdoodle.embed.process.io.progress.ProgressListener;
+import de.flapdoodle.embed.process.io.progress.StandardConsoleProgressListener;
+import de.flapdoodle.reverse.State;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.StateLookup;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import de.flapdoodle.types.Try;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockedInPersistentDirTest {
+
+	@Test
+	public void concurrentDownloadsAndExtractionsOfOnePackageDoNotOverlap(@TempDir Path persistentDir) throws Exception {
+		Package distPackage = Package.builder()
+			.fileSet(FileSet.builder()
+				.addEntry(FileType.Executable, "mongod")
+				.build())
+			.archiveType(ArchiveType.TGZ)
+			.url("http://some-local-server/mongod.tgz")
+			.build();
+
+		SlowTransition download = new SlowTransition(StateID.of("download", String.class));
+		SlowTransition extract = new SlowTransition(StateID.of("extract", String.class));
+
+		Transitions transitions = Transitions.from(
+			Start.to(PersistentDir.class).initializedWith(PersistentDir.of(persistentDir)),
+			Start.to(Package.class).initializedWith(distPackage),
+			Start.to(ProgressListener.class).providedBy(StandardConsoleProgressListener::new),
+			LockedInPersistentDir.of(download, "download"),
+			LockedInPersistentDir.of(extract, "extract")
+		);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> done = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				StateID<String> destination = i % 2 == 0 ? download.destination() : extract.destination();
+				done.add(executor.submit(() -> {
+					try (TransitionWalker.ReachedState<String> reached = transitions.walker().initState(destination)) {
+						assertThat(reached.current()).isEqualTo("done");
+					}
+				}));
+			}
+			for (Future<?> it : done) {
+				it.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertThat(download.maxConcurrent).hasValue(1);
+		assertThat(extract.maxConcurrent).hasValue(1);
+		assertThat(download.calls).hasValue(4);
+		assertThat(extract.calls).hasValue(4);
+	}
+
+	static class SlowTransition implements Transition<String> {
+		private final StateID<String> destination;
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxConcurrent = new AtomicInteger();
+		private final AtomicInteger calls = new AtomicInteger();
+
+		SlowTransition(StateID<String> destination) {
+			this.destination = destination;
+		}
+
+		@Override
+		public StateID<String> destination() {
+			return destination;
+		}
+
+		@Override
+		public Set<StateID<?>> sources() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public State<String> result(StateLookup lookup) {
+			calls.incrementAndGet();
+			maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Try.run(() -> Thread.sleep(20));
+			running.decrementAndGet();
+			return State.of("done");
+		}
+	}
+}
@@ -29,9 +29,12 @@ import com.mongodb.client.MongoDatabase;
 import de.flapdoodle.embed.mongo.Versions;
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.PortAllocator;
+import de.flapdoodle.embed.mongo.config.TeardownPolicy;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.mongo.packageresolver.Feature;
+import de.flapdoodle.embed.mongo.types.DatabaseDir;
 import de.flapdoodle.embed.mongo.types.SystemEnv;
 import de.flapdoodle.embed.process.archives.ExtractedFileSet;
 import de.flapdoodle.embed.process.distribution.Distribution;
@@ -46,6 +49,7 @@ import de.flapdoodle.reverse.TransitionWalker;
 import de.flapdoodle.reverse.transitions.Start;
 import de.flapdoodle.reverse.types.TypeNames;
 import de.flapdoodle.types.Pair;
+import de.flapdoodle.types.Try;
 import org.assertj.core.api.Assertions;
 import org.bson.Document;
 import org.junit.Assume;
@@ -59,12 +63,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import static de.flapdoodle.embed.mongo.ServerAddressMapping.serverAddress;
@@ -247,6 +258,91 @@ class MongodTest {
 		}
 	}
 
+	@Test
+	public void startTwoMongodInstancesInParallel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> first = Mongod.instance().startAsync(Version.Main.PRODUCTION, executor);
+			CompletableFuture<TransitionWalker.ReachedState<RunningMongodProcess>> second = Mongod.instance().startAsync(Version.Main.PRODUCTION, executor);
+
+			// if one start fails, the other instance is closed too
+			List<TransitionWalker.ReachedState<RunningMongodProcess>> running = AsyncStart.joinAll(Arrays.asList(first, second));
+			try {
+				assertThat(running.get(0).current().getServerAddress())
+					.isNotEqualTo(running.get(1).current().getServerAddress());
+			}
+			finally {
+				AsyncStart.closeAllAsync(running, executor).get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void killOnTeardownIfDatabaseIsThrownAwayAnyway() {
+		Mongod mongod = Mongod.instance()
+			.withMongodStarter(MongodStarter.withDefaults()
+				.withTeardownPolicy(TeardownPolicy.KILL));
+
+		RunningMongodProcess process;
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = mongod.start(Version.Main.PRODUCTION)) {
+			process = running.current();
+			assertThat(process.isAlive()).isTrue();
+		}
+		assertThat(process.isAlive()).isFalse();
+	}
+
+	@Test
+	public void shutdownCoordinatorStopsRegisteredProcesses() {
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			RunningMongodProcess process = running.current();
+
+			List<ShutdownCoordinator.Stopped> stopped = ShutdownCoordinator.instance()
+				.stop(Collections.singletonList(process), Duration.ofSeconds(30));
+
+			assertThat(stopped).hasSize(1);
+			assertThat(stopped.get(0).role()).isEqualTo(ShutdownCoordinator.Role.SERVER);
+			assertThat(stopped.get(0).inTime()).isTrue();
+			assertThat(process.isAlive()).isFalse();
+		}
+	}
+
+	@Test
+	public void shutdownCoordinatorKillsProcessesWhichAreNotStoppedInTime() {
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION)) {
+			RunningMongodProcess process = running.current();
+			process.whenStopping(() -> Try.run(() -> Thread.sleep(1000)));
+
+			List<ShutdownCoordinator.Stopped> stopped = ShutdownCoordinator.instance()
+				.stop(Collections.singletonList(process), Duration.ofMillis(100));
+
+			assertThat(stopped).hasSize(1);
+			assertThat(stopped.get(0).inTime()).isFalse();
+			assertThat(process.isAlive()).isFalse();
+		}
+	}
+
+	@Test
+	public void shutdownHookClosesTheReachedState() {
+		List<Path> databaseDirs = new ArrayList<>();
+		Listener listener = Listener.typedBuilder()
+			.onStateReached(StateID.of(DatabaseDir.class), databaseDir -> databaseDirs.add(databaseDir.value()))
+			.build();
+
+		TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance().start(Version.Main.PRODUCTION, listener);
+		RunningMongodProcess process = running.current();
+
+		List<ShutdownCoordinator.Stopped> stopped = ShutdownCoordinator.instance().stopAllOnShutdown(Duration.ofSeconds(30));
+
+		assertThat(stopped).hasSize(1);
+		assertThat(stopped.get(0).inTime()).isTrue();
+		assertThat(process.isAlive()).isFalse();
+		assertThat(databaseDirs).hasSize(1);
+		assertThat(databaseDirs.get(0)).doesNotExist();
+	}
+
 	@Test
 	public void startMongodOnNonFreePort() {
 		Net net = Net.defaults();
@@ -256,6 +352,11 @@ class MongodTest {
 				return Start.to(Net.class)
 					.initializedWith(net);
 			}
+
+			@Override public MongodStarter mongodStarter() {
+				return MongodStarter.withDefaults()
+					.withPortConflictRetries(0);
+			}
 		};
 
 		try (TransitionWalker.ReachedState<RunningMongodProcess> outerMongod = mongod.start(Version.Main.PRODUCTION)) {
@@ -268,6 +369,64 @@ class MongodTest {
 		}
 	}
 
+	@Test
+	public void retryWithOtherPortIfPortIsNotFree() {
+		Net net = Net.defaults();
+
+		Mongod mongod = new Mongod() {
+			@Override public Transition<Net> net() {
+				return Start.to(Net.class)
+					.initializedWith(net);
+			}
+		};
+
+		try (TransitionWalker.ReachedState<RunningMongodProcess> outerMongod = mongod.start(Version.Main.PRODUCTION)) {
+			try (TransitionWalker.ReachedState<RunningMongodProcess> innerMongod = mongod.start(Version.Main.PRODUCTION)) {
+				assertThat(innerMongod.current().getServerAddress().getPort()).isNotEqualTo(net.getPort());
+				assertThat(innerMongod.current().getNet().getPort()).isEqualTo(innerMongod.current().getServerAddress().getPort());
+				assertThat(innerMongod.current().portConflictRetries()).isEqualTo(1);
+			}
+			assertThat(outerMongod.current().portConflictRetries()).isEqualTo(0);
+		}
+	}
+
+	@Test
+	public void startMongodWithUnixSocketOnly() {
+		Assume.assumeFalse(Platform.detect(CommonOS.list()).operatingSystem() == CommonOS.Windows);
+
+		// mongod uses this port if there is no --port argument
+		boolean defaultPortWasFree = PortAllocator.isFree(InetAddress.getLoopbackAddress(), 27017);
+
+		RunningMongodProcess process;
+		try (TransitionWalker.ReachedState<RunningMongodProcess> running = Mongod.instance()
+			.withNet(Mongod.unixSocketNet())
+			.start(Version.Main.PRODUCTION)) {
+
+			process = running.current();
+			assertThat(process.getServerAddress().getUnixSocket()).isPresent();
+			assertThat(process.getServerAddress().getUnixSocket().get()).exists();
+
+			try (MongoClient mongo = MongoClients.create("mongodb://" + process.getServerAddress())) {
+				MongoCollection<Document> collection = mongo.getDatabase("test").getCollection("socket");
+				collection.insertOne(new Document("key", "value"));
+				assertThat(collection.find().first()).containsEntry("key", "value");
+
+				Document cmdLineOpts = mongo.getDatabase("admin").runCommand(new Document("getCmdLineOpts", 1));
+				assertThat(cmdLineOpts.getList("argv", String.class)).doesNotContain("--port", "--nounixsocket");
+				assertThat(cmdLineOpts.get("parsed", Document.class).get("net", Document.class))
+					.doesNotContainKey("port")
+					.containsEntry("bindIp", process.getServerAddress().getUnixSocket().get().toString());
+			}
+
+			if (defaultPortWasFree) {
+				assertThat(PortAllocator.isFree(InetAddress.getLoopbackAddress(), 27017))
+					.describedAs("no tcp listener")
+					.isTrue();
+			}
+		}
+		assertThat(process.isAlive()).isFalse();
+	}
+
 	@Test
 	@Disabled("does not run on ubuntu>=22.x because 3.6 uses libssl.so.1.0.0")
 	public void startLegacyMongodWichDontSupportBindIpArgument() throws IOException {
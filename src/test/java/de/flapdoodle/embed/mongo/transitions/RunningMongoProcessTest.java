@@ -20,7 +20,9 @@
  */
 package de.flapdoodle.embed.mongo.transitions;
 
-import de.flapdoodle.embed.process.io.SuccessMessageLineListener;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.distribution.Versions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -41,7 +43,7 @@ class RunningMongoProcessTest {
 		"the code execution cannot proceed because SSLEAY32.dll was not found. Reinstalling may fix this problem."
 	})
 	void acceptKnownErrorMessages(String message) {
-		SuccessMessageLineListener testeePart = RunningMongoProcess.errorMessageAwareLogWatch();
+		StartupLogWatch testeePart = RunningMongoProcess.errorMessageAwareLogWatch();
 		testeePart.inspect(message);
 		assertThat(testeePart.successMessageFound()).isFalse();
 		assertThat(testeePart.errorMessage())
@@ -56,8 +58,57 @@ class RunningMongoProcessTest {
 		"Waiting for connections"
 	})
 	void acceptSuccessMessage(String message) {
-		SuccessMessageLineListener testeePart = RunningMongoProcess.errorMessageAwareLogWatch();
+		StartupLogWatch testeePart = RunningMongoProcess.errorMessageAwareLogWatch();
 		testeePart.inspect(message);
 		assertThat(testeePart.successMessageFound()).isTrue();
 	}
-}
\ No newline at end of file
+
+	@Test
+	void structuredLogLinesAreMatchedByLogId() {
+		StartupLogWatch testee = RunningMongoProcess.errorMessageAwareLogWatch(Version.V4_4_1);
+		testee.inspect("{\"t\":{\"$date\":\"2022-11-02T10:02:09.114+01:00\"},\"s\":\"I\",  \"c\":\"CONTROL\",  \"id\":4615611, \"ctx\":\"initandlisten\","
+			+ "\"msg\":\"MongoDB starting\",\"attr\":{\"pid\":11026,\"port\":27017,\"dbPath\":\"/tmp/db\",\"architecture\":\"64-bit\",\"host\":\"box\"}}");
+		assertThat(testee.processId()).isEqualTo(11026);
+		assertThat(testee.successMessageFound()).isFalse();
+
+		testee.inspect("{\"t\":{\"$date\":\"2022-11-02T10:02:09.386+01:00\"},\"s\":\"I\",  \"c\":\"NETWORK\",  \"id\":23016,   \"ctx\":\"listener\","
+			+ "\"msg\":\"Waiting for connections\",\"attr\":{\"port\":27017,\"ssl\":\"off\"}}");
+		assertThat(testee.successMessageFound()).isTrue();
+		assertThat(testee.errorMessage()).isEmpty();
+	}
+
+	@Test
+	void structuredErrorLineIsMatchedByKnownFailureMessage() {
+		StartupLogWatch testee = RunningMongoProcess.errorMessageAwareLogWatch(Version.V6_0_1);
+		testee.inspect("{\"t\":{\"$date\":\"2022-11-02T10:02:09.386+01:00\"},\"s\":\"E\",  \"c\":\"CONTROL\",  \"id\":20568,   \"ctx\":\"initandlisten\","
+			+ "\"msg\":\"Error setting up listener\",\"attr\":{\"error\":{\"code\":9001,\"codeName\":\"SocketException\",\"errmsg\":\"Address already in use\"}}}");
+		assertThat(testee.successMessageFound()).isFalse();
+		assertThat(testee.errorMessage()).contains("Address already in use");
+	}
+
+	@Test
+	void fatalStructuredLineIsAnError() {
+		StartupLogWatch testee = RunningMongoProcess.errorMessageAwareLogWatch(Version.V5_0_2);
+		testee.inspect("{\"s\":\"F\",\"c\":\"-\",\"id\":23091,\"ctx\":\"initandlisten\",\"msg\":\"Fatal assertion\",\"attr\":{\"msgid\":28595}}");
+		assertThat(testee.errorMessage()).contains("Fatal assertion");
+	}
+
+	@Test
+	void versionsWithoutVersionNumberUsePlainLogLines() {
+		StartupLogWatch testee = RunningMongoProcess.errorMessageAwareLogWatch(Versions.withFeatures(de.flapdoodle.embed.process.distribution.Version.of("custom-build")));
+		testee.inspect("{\"s\":\"F\",\"c\":\"-\",\"id\":23091,\"ctx\":\"initandlisten\",\"msg\":\"Fatal assertion\",\"attr\":{\"msgid\":28595}}");
+		assertThat(testee.errorMessage()).isEmpty();
+
+		testee.inspect("{\"s\":\"I\",\"c\":\"NETWORK\",\"id\":23016,\"ctx\":\"listener\",\"msg\":\"Waiting for connections\",\"attr\":{\"port\":27017}}");
+		assertThat(testee.successMessageFound()).isTrue();
+	}
+
+	@Test
+	void oldVersionsUsePlainLogLines() {
+		StartupLogWatch testee = RunningMongoProcess.errorMessageAwareLogWatch(Version.V3_6_22);
+		testee.inspect("2022-11-02T10:02:09.114+0100 I CONTROL  [initandlisten] MongoDB starting : pid=11026 port=27017 dbpath=/tmp/db 64-bit host=box");
+		testee.inspect("2022-11-02T10:02:09.386+0100 I NETWORK  [initandlisten] waiting for connections on port 27017");
+		assertThat(testee.processId()).isEqualTo(11026);
+		assertThat(testee.successMessageFound()).isTrue();
+	}
+}
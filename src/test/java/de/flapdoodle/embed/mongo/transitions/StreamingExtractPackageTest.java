@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.transitions;
+
+import de.flapdoodle.embed.process.archives.ExtractedFileSet;
+import de.flapdoodle.embed.process.config.store.FileSet;
+import de.flapdoodle.embed.process.config.store.FileType;
+import de.flapdoodle.embed.process.config.store.Package;
+import de.flapdoodle.embed.process.distribution.ArchiveType;
+import de.flapdoodle.embed.process.io.progress.ProgressListener;
+import de.flapdoodle.embed.process.io.progress.StandardConsoleProgressListener;
+import de.flapdoodle.embed.process.store.ContentHashExtractedFileSetStore;
+import de.flapdoodle.embed.process.store.DownloadCache;
+import de.flapdoodle.embed.process.store.ExtractedFileSetStore;
+import de.flapdoodle.embed.process.store.LocalDownloadCache;
+import de.flapdoodle.embed.process.transitions.ExtractPackage;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.Transition;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.Transitions;
+import de.flapdoodle.reverse.transitions.Start;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingExtractPackageTest {
+
+	@Test
+	public void streamingExtractGivesSameFileSetAsExtractPackage(@TempDir Path tempDir) throws IOException {
+		Path archive = tempDir.resolve("fixture.tgz");
+		writeArchive(archive);
+
+		Package distPackage = Package.builder()
+			.fileSet(FileSet.builder()
+				.addEntry(FileType.Executable, "mongod")
+				.addEntry(FileType.Library, "libfixture.so")
+				.build())
+			.archiveType(ArchiveType.TGZ)
+			.url(archive.toUri().toString())
+			.build();
+
+		ExtractedFileSet streamed = extract(tempDir.resolve("streaming"), distPackage,
+			StreamingExtractPackage.withDefaults());
+		ExtractedFileSet extracted = extract(tempDir.resolve("classic"), distPackage,
+			ExtractPackage.withDefaults()
+				.withExtractedFileSetStore(StateID.of(ExtractedFileSetStore.class)),
+			Start.to(Path.class).initializedWith(archive));
+
+		assertThat(streamed.executable().getFileName()).isEqualTo(extracted.executable().getFileName());
+		assertThat(Files.readAllBytes(streamed.executable())).isEqualTo(Files.readAllBytes(extracted.executable()));
+		assertThat(Files.isExecutable(streamed.executable())).isTrue();
+		assertThat(fileNames(streamed.libraryFiles())).isEqualTo(fileNames(extracted.libraryFiles()));
+	}
+
+	private static ExtractedFileSet extract(Path baseDir, Package distPackage, Transition<?>... extraTransitions) throws IOException {
+		Files.createDirectories(baseDir);
+		Transitions transitions = Transitions.from(
+				Start.to(Package.class).initializedWith(distPackage),
+				Start.to(DownloadCache.class).initializedWith(new LocalDownloadCache(baseDir.resolve("archives"))),
+				Start.to(ExtractedFileSetStore.class).initializedWith(new ContentHashExtractedFileSetStore(baseDir.resolve("fileSets"))),
+				Start.to(de.flapdoodle.embed.process.io.directories.TempDir.class)
+					.initializedWith(de.flapdoodle.embed.process.io.directories.TempDir.of(Files.createDirectories(baseDir.resolve("temp")))),
+				Start.to(ProgressListener.class).providedBy(StandardConsoleProgressListener::new))
+			.addAll(extraTransitions);
+
+		try (TransitionWalker.ReachedState<ExtractedFileSet> extracted = transitions.walker()
+			.initState(StateID.of(ExtractedFileSet.class))) {
+			return extracted.current();
+		}
+	}
+
+	private static List<String> fileNames(Set<Path> files) {
+		return files.stream()
+			.map(it -> it.getFileName().toString())
+			.sorted()
+			.collect(Collectors.toList());
+	}
+
+	private static void writeArchive(Path archive) throws IOException {
+		try (OutputStream out = Files.newOutputStream(archive);
+			 TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(out))) {
+			addEntry(tar, "fixture/README", "not part of the file set");
+			addEntry(tar, "fixture/bin/mongod", "#!/bin/sh\necho fixture\n");
+			addEntry(tar, "fixture/lib/libfixture.so", "library");
+		}
+	}
+
+	private static void addEntry(TarArchiveOutputStream tar, String name, String content) throws IOException {
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setSize(bytes.length);
+		tar.putArchiveEntry(entry);
+		tar.write(bytes);
+		tar.closeArchiveEntry();
+	}
+}
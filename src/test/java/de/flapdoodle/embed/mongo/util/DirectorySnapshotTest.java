@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DirectorySnapshotTest {
+
+	private final DirectorySnapshot testee = DirectorySnapshot.builder()
+		.reflinks(false)
+		.parallelism(2)
+		.build();
+
+	@Test
+	void secondSnapshotOnlyCopiesChangedFiles(@TempDir Path source, @TempDir Path target) throws IOException {
+		write(source.resolve("unchanged"), "unchanged");
+		write(source.resolve("sub").resolve("changed"), "first");
+		write(source.resolve("removed"), "removed");
+
+		DirectorySnapshot.Report first = testee.snapshot(source, target);
+		assertThat(first.filesCopied()).isEqualTo(3);
+		assertThat(first.filesSkipped()).isEqualTo(0);
+
+		write(source.resolve("sub").resolve("changed"), "second");
+		Files.setLastModifiedTime(source.resolve("sub").resolve("changed"), FileTime.fromMillis(System.currentTimeMillis() + 10000));
+		Files.delete(source.resolve("removed"));
+
+		DirectorySnapshot.Report second = testee.snapshot(source, target);
+		assertThat(second.filesCopied()).isEqualTo(1);
+		assertThat(second.bytesCopied()).isEqualTo("second".length());
+		assertThat(second.filesSkipped()).isEqualTo(1);
+		assertThat(second.bytesSkipped()).isEqualTo("unchanged".length());
+		assertThat(second.filesDeleted()).isEqualTo(1);
+
+		assertThat(target.resolve("sub").resolve("changed")).hasContent("second");
+		assertThat(target.resolve("removed")).doesNotExist();
+	}
+
+	@Test
+	void directoriesGoneInSourceAreDeleted(@TempDir Path source, @TempDir Path target) throws IOException {
+		write(source.resolve("kept").resolve("file"), "kept");
+		write(source.resolve("removed").resolve("sub").resolve("file"), "removed");
+
+		testee.snapshot(source, target);
+
+		Files.delete(source.resolve("removed").resolve("sub").resolve("file"));
+		Files.delete(source.resolve("removed").resolve("sub"));
+		Files.delete(source.resolve("removed"));
+
+		DirectorySnapshot.Report second = testee.snapshot(source, target);
+		assertThat(second.filesDeleted()).isEqualTo(1);
+		assertThat(second.filesSkipped()).isEqualTo(1);
+
+		assertThat(target.resolve("kept").resolve("file")).hasContent("kept");
+		assertThat(target.resolve("removed")).doesNotExist();
+	}
+
+	@Test
+	void hardlinkFilesIfEnabled(@TempDir Path source, @TempDir Path target) throws IOException {
+		write(source.resolve("file"), "content");
+
+		DirectorySnapshot.Report report = DirectorySnapshot.builder()
+			.from(testee)
+			.incremental(false)
+			.hardlinks(true)
+			.build()
+			.snapshot(source, target);
+
+		assertThat(report.filesLinked() + report.filesCopied()).isEqualTo(1);
+		assertThat(target.resolve("file")).hasContent("content");
+	}
+
+	@Test
+	void incrementalSnapshotCanNotUseHardlinks() {
+		assertThatThrownBy(() -> DirectorySnapshot.builder()
+			.incremental(true)
+			.hardlinks(true)
+			.build())
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void incrementalSnapshotReplacesHardlinkedFiles(@TempDir Path source, @TempDir Path target) throws IOException {
+		write(source.resolve("file"), "content");
+		DirectorySnapshot.builder()
+			.from(testee)
+			.incremental(false)
+			.hardlinks(true)
+			.build()
+			.snapshot(source, target);
+
+		DirectorySnapshot.Report report = testee.snapshot(source, target);
+		assertThat(report.filesSkipped()).isEqualTo(0);
+		assertThat(report.filesCopied()).isEqualTo(1);
+
+		write(source.resolve("file"), "changed");
+		assertThat(target.resolve("file")).hasContent("content");
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
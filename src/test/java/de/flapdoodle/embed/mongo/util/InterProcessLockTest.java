@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InterProcessLockTest {
+
+	@Test
+	void sameFileCanBeLockedAgainByTheSameThread(@TempDir Path dir) throws IOException {
+		try (InterProcessLock outer = InterProcessLock.lock(dir.resolve("test.lock"))) {
+			try (InterProcessLock inner = InterProcessLock.lock(dir.resolve("sub").resolve("..").resolve("test.lock"))) {
+				assertThat(inner.waitTime()).isGreaterThanOrEqualTo(0);
+			}
+		}
+		try (InterProcessLock again = InterProcessLock.lock(dir.resolve("test.lock"))) {
+			assertThat(again.waitTime()).isGreaterThanOrEqualTo(0);
+		}
+	}
+
+	@Test
+	void onlyOneThreadHoldsTheLock(@TempDir Path dir) throws Exception {
+		Path lockFile = dir.resolve("test.lock");
+		AtomicInteger holders = new AtomicInteger();
+		AtomicInteger maxHolders = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> done = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				done.add(executor.submit(() -> {
+					try (InterProcessLock lock = InterProcessLock.lock(lockFile)) {
+						maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+						Thread.sleep(10);
+						holders.decrementAndGet();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> it : done) {
+				it.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertThat(maxHolders).hasValue(1);
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011
+ *   Michael Mosmann <michael@mosmann.de>
+ *   Martin Jöhren <m.joehren@googlemail.com>
+ *
+ * with contributions from
+ * 	konstantin-ba@github,Archimedes Trajano	(trajano@github)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.flapdoodle.embed.mongo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineRingBufferTest {
+
+	@Test
+	void keepLastLines() {
+		LineRingBuffer testee = new LineRingBuffer(3, 1024);
+		for (int i = 0; i < 5; i++) {
+			testee.add("line " + i);
+		}
+
+		assertThat(testee.dropped()).isEqualTo(2);
+		assertThat(testee.asString()).isEqualTo("[... 2 lines skipped ...]\nline 2\nline 3\nline 4\n");
+	}
+
+	@Test
+	void dropOldLinesIfCharacterLimitIsReached() {
+		LineRingBuffer testee = new LineRingBuffer(100, 10);
+		testee.add("12345");
+		testee.add("6789");
+		testee.add("abc");
+
+		assertThat(testee.asString()).isEqualTo("[... 1 lines skipped ...]\n6789\nabc\n");
+	}
+
+	@Test
+	void truncateLinesLongerThanCharacterLimit() {
+		LineRingBuffer testee = new LineRingBuffer(100, 4);
+		testee.add("123456789");
+
+		assertThat(testee.dropped()).isEqualTo(0);
+		assertThat(testee.asString()).isEqualTo("1234\n");
+	}
+}